@@ -0,0 +1,113 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 연관관계 지연 로딩 시 실행되는 SQL 수를 batch fetch size 별로 비교한다.
+ * <p>
+ * batchFetchSize=1 이 batch fetch 를 끈 상태다. statements 카운터를 ops 로 나누면 호출당 SQL 수가 된다.
+ * 2차 캐시를 거치지 않도록 세션 CacheMode 를 IGNORE 로 둔다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchFetchBenchmark {
+
+    private static final int MEMBERS_PER_OPERATION = 1_000;
+
+    @State(Scope.Benchmark)
+    public static class BatchFetchState extends RepositoryBenchmarkState {
+
+        @Param({"1", "100"})
+        public int batchFetchSize;
+
+        @Override
+        protected List<String> arguments() {
+            List<String> arguments = super.arguments();
+            arguments.add("--spring.jpa.properties.hibernate.default_batch_fetch_size=" + batchFetchSize);
+            arguments.add("--querydsl.batch-fetch.team=" + batchFetchSize);
+            arguments.add("--querydsl.batch-fetch.team-members=" + batchFetchSize);
+            return arguments;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class StatementCounter {
+        public long statements;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+        }
+    }
+
+    private EntityManager em;
+    private Statistics statistics;
+
+    @Setup
+    public void setUp(BatchFetchState state) {
+        em = state.context.getBean(EntityManager.class);
+        statistics = state.context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Benchmark
+    public int membersThenTeams(BatchFetchState state, StatementCounter counter) {
+        long before = statistics.getPrepareStatementCount();
+        Integer touched = state.readOnlyTransaction.execute(status -> {
+            em.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            List<Member> members = new JPAQueryFactory(em)
+                    .selectFrom(member)
+                    .orderBy(member.id.asc())
+                    .limit(MEMBERS_PER_OPERATION)
+                    .fetch();
+            int length = 0;
+            for (Member findMember : members) {
+                length += findMember.getTeam().getName().length();
+            }
+            return length;
+        });
+        counter.statements += statistics.getPrepareStatementCount() - before;
+        return touched;
+    }
+
+    @Benchmark
+    public int teamsThenMembers(BatchFetchState state, StatementCounter counter) {
+        long before = statistics.getPrepareStatementCount();
+        Integer touched = state.readOnlyTransaction.execute(status -> {
+            em.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            List<Team> teams = new JPAQueryFactory(em).selectFrom(team).fetch();
+            int size = 0;
+            for (Team findTeam : teams) {
+                size += findTeam.getMembers().size();
+            }
+            return size;
+        });
+        counter.statements += statistics.getPrepareStatementCount() - before;
+        return touched;
+    }
+}
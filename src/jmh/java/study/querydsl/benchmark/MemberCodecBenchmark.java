@@ -0,0 +1,100 @@
+package study.querydsl.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.dto.MemberTeamBinaryCodec;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /v1/members 응답 본문 인코딩/디코딩 비용을 Jackson 과 열 단위 바이너리 포맷으로 비교한다.
+ * <p>
+ * DB 없이 DTO 만 다룬다. bytes 카운터를 ops 로 나누면 응답 하나의 크기가 된다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberCodecBenchmark {
+
+    private static final TypeReference<List<MemberTeamDto>> ROWS = new TypeReference<>() {
+    };
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new ParameterNamesModule(JsonCreator.Mode.PROPERTIES));
+
+    private List<MemberTeamDto> content;
+    private byte[] json;
+    private byte[] binary;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class ByteCounter {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        content = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            content.add(new MemberTeamDto(1L + i, "member" + i, i % 100, 1L + i % 10, "team" + i % 10));
+        }
+        json = objectMapper.writeValueAsBytes(content);
+        binary = encodeBinary(content);
+    }
+
+    @Benchmark
+    public byte[] jacksonEncode(ByteCounter counter) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(content);
+        counter.bytes += bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] binaryEncode(ByteCounter counter) throws IOException {
+        byte[] bytes = encodeBinary(content);
+        counter.bytes += bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> jacksonDecode() throws IOException {
+        return objectMapper.readValue(json, ROWS);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> binaryDecode() throws IOException {
+        return MemberTeamBinaryCodec.readList(new ByteArrayInputStream(binary));
+    }
+
+    private static byte[] encodeBinary(List<MemberTeamDto> content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.size() * 12);
+        MemberTeamBinaryCodec.writeList(content, out);
+        return out.toByteArray();
+    }
+}
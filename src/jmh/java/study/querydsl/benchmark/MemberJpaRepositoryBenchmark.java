@@ -0,0 +1,79 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberJpaRepositoryBenchmark {
+
+    private MemberJpaRepository repository;
+
+    @Setup
+    public void setUp(RepositoryBenchmarkState state) {
+        repository = state.context.getBean(MemberJpaRepository.class);
+    }
+
+    @Benchmark
+    public Member save(RepositoryBenchmarkState state) {
+        return state.rollbackTransaction.execute(status -> {
+            Member member = new Member("benchmark", 30);
+            repository.save(member);
+            status.setRollbackOnly();
+            return member;
+        });
+    }
+
+    @Benchmark
+    public Optional<Member> findById(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.findById(state.existingMemberId));
+    }
+
+    @Benchmark
+    public List<Member> findAll(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.findAll());
+    }
+
+    @Benchmark
+    public List<Member> findAllQueryDsl(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.findAllQueryDsl());
+    }
+
+    @Benchmark
+    public List<Member> findByUsername(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.findByUsername(state.existingUsername));
+    }
+
+    @Benchmark
+    public List<Member> findByUsernameQueryDsl(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.findByUsernameQueryDsl(state.existingUsername));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.searchByBuilder(state.condition));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.search(state.condition));
+    }
+
+    @Benchmark
+    public List<Member> searchMember(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.searchMember(state.condition));
+    }
+}
@@ -0,0 +1,137 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.QueryResults;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.MemberCursor;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberRepositoryBenchmark {
+
+    private MemberRepository repository;
+    private JPAQueryFactory queryFactory;
+
+    @Setup
+    public void setUp(RepositoryBenchmarkState state) {
+        repository = state.context.getBean(MemberRepository.class);
+        queryFactory = new JPAQueryFactory(state.context.getBean(EntityManager.class));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.search(state.condition));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.searchPageSimple(state.condition, state.firstPage));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.searchPageComplex(state.condition, state.firstPage));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplexDeep(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.searchPageComplex(state.condition, state.deepPage));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageEstimated(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.searchPageEstimated(state.condition, state.firstPage, false));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageConcurrent(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.searchPageConcurrent(state.condition, state.firstPage));
+    }
+
+    @Benchmark
+    public MemberCursorPage searchByCursor(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status ->
+                repository.searchByCursor(state.condition, MemberCursor.Sort.AGE, null, state.firstPage.getPageSize()));
+    }
+
+    @Benchmark
+    public long searchStream(RepositoryBenchmarkState state, Blackhole blackhole) {
+        return repository.searchStream(state.condition, blackhole::consume);
+    }
+
+    /**
+     * 비교용: deprecated 된 fetchResults() 로 content 와 count 를 한 번에 가져오는 방식
+     */
+    @Benchmark
+    public Page<MemberTeamDto> fetchResultsPaging(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> {
+            QueryResults<MemberTeamDto> results = queryFactory.select(new QMemberTeamDto(
+                            member.id.as("memberId"),
+                            member.username,
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(team.name.eq(state.condition.getTeamName()),
+                            member.age.goe(state.condition.getAgeGoe()),
+                            member.age.loe(state.condition.getAgeLoe()))
+                    .offset(state.firstPage.getOffset())
+                    .limit(state.firstPage.getPageSize())
+                    .fetchResults();
+            return new PageImpl<>(results.getResults(), state.firstPage, results.getTotal());
+        });
+    }
+
+    /**
+     * 비교용: content 쿼리와 count 쿼리를 따로 작성하는 방식
+     */
+    @Benchmark
+    public Page<MemberTeamDto> separateCountPaging(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> {
+            List<MemberTeamDto> content = queryFactory.select(new QMemberTeamDto(
+                            member.id.as("memberId"),
+                            member.username,
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(team.name.eq(state.condition.getTeamName()),
+                            member.age.goe(state.condition.getAgeGoe()),
+                            member.age.loe(state.condition.getAgeLoe()))
+                    .offset(state.firstPage.getOffset())
+                    .limit(state.firstPage.getPageSize())
+                    .fetch();
+            Long total = queryFactory.select(member.count())
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(team.name.eq(state.condition.getTeamName()),
+                            member.age.goe(state.condition.getAgeGoe()),
+                            member.age.loe(state.condition.getAgeLoe()))
+                    .fetchOne();
+            return new PageImpl<>(content, state.firstPage, total);
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberTestRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QueryDsl4RepositorySupport.applyPagination 계열과 직접 작성한 페이징(MemberRepositoryBenchmark.searchPageComplex) 비교용
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberTestRepositoryBenchmark {
+
+    private MemberTestRepository repository;
+
+    @Setup
+    public void setUp(RepositoryBenchmarkState state) {
+        repository = state.context.getBean(MemberTestRepository.class);
+    }
+
+    @Benchmark
+    public List<Member> basicSelect(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.basicSelect());
+    }
+
+    @Benchmark
+    public List<Member> basicSelectFrom(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.basicSelectFrom());
+    }
+
+    @Benchmark
+    public Page<Member> searchPageByApplyPage(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.searchPageByApplyPage(state.ageCondition, state.firstPage));
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.applyPagination(state.condition, state.firstPage));
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination2(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.applyPagination2(state.ageCondition, state.firstPage));
+    }
+
+    @Benchmark
+    public Page<Member> applyConcurrentPagination(RepositoryBenchmarkState state) {
+        return state.readOnlyTransaction.execute(status -> repository.applyConcurrentPagination(state.condition, state.firstPage));
+    }
+}
@@ -0,0 +1,118 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 인메모리 H2 위에 애플리케이션 컨텍스트를 띄우고 members 건수만큼 데이터를 적재한다.
+ * <p>
+ * 적재는 JPA 를 거치지 않고 JDBC batch insert 로 한다. 팀은 TEAM_COUNT 개, 나이는 0~99 로 고르게 분포한다.
+ */
+@State(Scope.Benchmark)
+public class RepositoryBenchmarkState {
+
+    static final int TEAM_COUNT = 10;
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final long ID_ALLOCATION_SIZE = 50;
+
+    @Param({"10000"})
+    public int members;
+
+    public ConfigurableApplicationContext context;
+    public TransactionTemplate readOnlyTransaction;
+    public TransactionTemplate rollbackTransaction;
+
+    public MemberSearchCondition condition;
+    /** team join 이 없는 쿼리용 (teamName 조건 없음) */
+    public MemberSearchCondition ageCondition;
+    public Pageable firstPage;
+    public Pageable deepPage;
+    public long existingMemberId;
+    public String existingUsername;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments().toArray(new String[0]));
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        rollbackTransaction = new TransactionTemplate(transactionManager);
+
+        load(context.getBean(JdbcTemplate.class));
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+        ageCondition = new MemberSearchCondition();
+        ageCondition.setAgeGoe(20);
+        ageCondition.setAgeLoe(40);
+        firstPage = PageRequest.of(0, 20);
+        long matches = (long) members / TEAM_COUNT * 21 / 100;
+        deepPage = PageRequest.of((int) Math.max(0, matches / 20 - 1), 20);
+        existingMemberId = 1L + members / 2;
+        existingUsername = "member" + (members / 2);
+    }
+
+    protected List<String> arguments() {
+        List<String> arguments = new ArrayList<>();
+        arguments.add("--spring.profiles.active=jmh");
+        arguments.add("--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1");
+        arguments.add("--spring.jpa.properties.hibernate.format_sql=false");
+        arguments.add("--spring.jpa.properties.hibernate.use_sql_comments=false");
+        arguments.add("--logging.level.org.hibernate.SQL=warn");
+        arguments.add("--decorator.datasource.enabled=false");
+        //같은 조건을 반복 조회하므로 결과 캐시를 켜 두면 쿼리 비용을 측정할 수 없다.
+        arguments.add("--querydsl.result-cache.enabled=false");
+        return arguments;
+    }
+
+    private void load(JdbcTemplate jdbcTemplate) {
+        List<Object[]> teams = new ArrayList<>();
+        for (long i = 1; i <= TEAM_COUNT; i++) {
+            teams.add(new Object[]{i, "team" + (i - 1)});
+        }
+        jdbcTemplate.batchUpdate("insert into team (team_id, name) values (?, ?)", teams);
+
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < members; i++) {
+            batch.add(new Object[]{1L + i, "member" + i, i % 100, 1L + i % TEAM_COUNT});
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", batch);
+        }
+        // pooled optimizer 는 sequence 값을 할당 구간의 끝으로 쓰므로 allocationSize 만큼 띄워서 다시 시작한다.
+        jdbcTemplate.execute("alter sequence team_seq restart with " + (TEAM_COUNT + ID_ALLOCATION_SIZE));
+        jdbcTemplate.execute("alter sequence member_seq restart with " + (members + ID_ALLOCATION_SIZE));
+        jdbcTemplate.execute("analyze");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.config;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.Collection;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import java.util.Map;
+
+/**
+ * 엔티티/컬렉션 별 batch fetch size 를 설정값으로 덮어쓴다.
+ * <p>
+ * 키는 엔티티 이름(study.querydsl.entity.Team) 또는 컬렉션 role(study.querydsl.entity.Team.members) 이다.
+ * persister 가 만들어지기 전에 호출되므로 @BatchSize 와 hibernate.default_batch_fetch_size 보다 우선한다.
+ */
+public class BatchFetchSizeIntegrator implements Integrator {
+
+    private final Map<String, Integer> batchSizes;
+
+    public BatchFetchSizeIntegrator(Map<String, Integer> batchSizes) {
+        this.batchSizes = batchSizes;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        batchSizes.forEach((name, size) -> {
+            PersistentClass entity = metadata.getEntityBinding(name);
+            if (entity != null) {
+                entity.setBatchSize(size);
+                return;
+            }
+            Collection collection = metadata.getCollectionBinding(name);
+            if (collection == null) {
+                throw new IllegalArgumentException("Unknown entity or collection role for batch fetch size: " + name);
+            }
+            collection.setBatchSize(size);
+        });
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
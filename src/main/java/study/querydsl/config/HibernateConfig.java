@@ -0,0 +1,48 @@
+package study.querydsl.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.event.MemberChangeEvents;
+import study.querydsl.repository.support.DataVersion;
+import study.querydsl.repository.support.TableWriteStatementInspector;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Configuration
+public class HibernateConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(DataVersion dataVersion,
+                                                                     MemberChangeEvents memberChangeEvents) {
+        TableWriteStatementInspector inspector =
+                new TableWriteStatementInspector(Set.of("member", "team"), dataVersion, memberChangeEvents);
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+
+    /**
+     * 0 이면 엔티티의 @BatchSize 를 그대로 쓴다. (전역 기본값은 hibernate.default_batch_fetch_size)
+     */
+    @Bean
+    public HibernatePropertiesCustomizer batchFetchSizeCustomizer(
+            @Value("${querydsl.batch-fetch.team:0}") int teamBatchSize,
+            @Value("${querydsl.batch-fetch.team-members:0}") int teamMembersBatchSize) {
+        Map<String, Integer> batchSizes = new HashMap<>();
+        if (teamBatchSize > 0) {
+            batchSizes.put(Team.class.getName(), teamBatchSize);
+        }
+        if (teamMembersBatchSize > 0) {
+            batchSizes.put(Team.class.getName() + ".members", teamMembersBatchSize);
+        }
+        IntegratorProvider integratorProvider = () -> List.of(new BatchFetchSizeIntegrator(batchSizes));
+        return hibernateProperties -> hibernateProperties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, integratorProvider);
+    }
+}
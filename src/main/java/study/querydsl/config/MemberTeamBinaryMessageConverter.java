@@ -0,0 +1,78 @@
+package study.querydsl.config;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import study.querydsl.dto.MemberTeamBinaryCodec;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Accept 가 {@value MemberTeamBinaryCodec#CONTENT_TYPE} 인 요청에 List/Page&lt;MemberTeamDto&gt; 를 열 단위 바이너리로 응답한다.
+ * 쓰기 전용이다.
+ */
+public class MemberTeamBinaryMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MemberTeamBinaryCodec.CONTENT_TYPE);
+
+    public MemberTeamBinaryMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz) || Page.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!supports(clazz) || !canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType resolved = ResolvableType.forType(type != null ? type : clazz);
+        ResolvableType container = List.class.isAssignableFrom(clazz) ? resolved.as(List.class) : resolved.as(Page.class);
+        Class<?> element = container.getGeneric(0).resolve();
+        return element != null && MemberTeamDto.class.isAssignableFrom(element);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = new BufferedOutputStream(outputMessage.getBody(), 8192);
+        if (value instanceof Page) {
+            MemberTeamBinaryCodec.writePage((Page<MemberTeamDto>) value, out);
+        } else {
+            MemberTeamBinaryCodec.writeList((List<MemberTeamDto>) value, out);
+        }
+        out.flush();
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("binary member format is write only", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("binary member format is write only", inputMessage);
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import study.querydsl.repository.support.DataVersion;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * querydsl.datasource.replica.urls 가 설정되면 spring.datasource 를 primary 로, 나열된 url 들을 replica 로 쓰는
+ * {@link ReplicaRoutingDataSource} 를 등록한다.
+ * <p>
+ * 로컬에서는 H2 서버를 포트별로 여러 개 띄워 확인할 수 있다. replica 로의 복제는 이 애플리케이션이 하지 않는다.
+ * <pre>
+ * querydsl.datasource.replica.urls=jdbc:h2:tcp://localhost:9093/~/querydsl,jdbc:h2:tcp://localhost:9094/~/querydsl
+ * querydsl.datasource.replica.max-lag-millis=1000
+ * </pre>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl.datasource.replica", name = "urls")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, DataVersion dataVersion,
+                                 @Value("${querydsl.datasource.replica.urls}") List<String> replicaUrls,
+                                 @Value("${querydsl.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                 @Value("${querydsl.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                 @Value("${querydsl.datasource.replica.max-lag-millis:1000}") long maxLagMillis) {
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+
+        List<DataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (String url : replicaUrls) {
+            replicas.add(properties.initializeDataSourceBuilder()
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build());
+        }
+
+        ReplicaRoutingDataSource routing =
+                new ReplicaRoutingDataSource(primary, replicas, dataVersion::lastChangedMillis, maxLagMillis);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
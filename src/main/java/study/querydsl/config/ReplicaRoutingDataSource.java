@@ -0,0 +1,87 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * readOnly 트랜잭션은 replica 들에 round-robin 으로, 그 밖의 모든 커넥션은 primary 로 보낸다.
+ * <p>
+ * 트랜잭션 시작 시점에는 readOnly 여부가 아직 설정되지 않으므로 반드시 LazyConnectionDataSourceProxy 뒤에 두어야 한다.
+ * 마지막 쓰기 이후 maxLagMillis 가 지나지 않았으면 replica 에 아직 반영되지 않았을 수 있으므로 읽기도 primary 로 보낸다.
+ * replica 커넥션을 얻지 못하면 primary 로 대신 읽는다.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+    private static final String REPLICA_PREFIX = "replica-";
+
+    private final int replicaCount;
+    private final LongSupplier lastWriteMillis;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    LongSupplier lastWriteMillis, long maxLagMillis) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(REPLICA_PREFIX + i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        this.replicaCount = replicas.size();
+        this.lastWriteMillis = lastWriteMillis;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaCount == 0 || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        if (System.currentTimeMillis() - lastWriteMillis.getAsLong() < maxLagMillis) {
+            return PRIMARY;
+        }
+        return REPLICA_PREFIX + Math.floorMod(next.getAndIncrement(), replicaCount);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        try {
+            return getResolvedDataSources().get(key).getConnection();
+        } catch (SQLException e) {
+            if (PRIMARY.equals(key)) {
+                throw e;
+            }
+            log.warn("{} unavailable, reading from primary", key, e);
+            return getResolvedDataSources().get(PRIMARY).getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Object key = determineCurrentLookupKey();
+        try {
+            return getResolvedDataSources().get(key).getConnection(username, password);
+        } catch (SQLException e) {
+            if (PRIMARY.equals(key)) {
+                throw e;
+            }
+            log.warn("{} unavailable, reading from primary", key, e);
+            return getResolvedDataSources().get(PRIMARY).getConnection(username, password);
+        }
+    }
+}
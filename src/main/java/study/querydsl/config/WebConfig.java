@@ -0,0 +1,19 @@
+package study.querydsl.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * Accept 가 없거나 와일드카드인 요청은 지금처럼 JSON 으로 응답하도록 기본 컨버터들 뒤에 둔다.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MemberTeamBinaryMessageConverter());
+    }
+}
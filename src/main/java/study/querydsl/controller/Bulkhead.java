@@ -0,0 +1,119 @@
+package study.querydsl.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 엔드포인트 하나가 쓰는 전용 스레드 풀
+ * <p>
+ * 풀과 대기 큐가 모두 차 있으면 작업을 받지 않고 {@link BulkheadFullException} 을 바로 던진다.
+ * 제출 시점부터 deadline 안에 끝나지 않으면 {@link DeadlineExceededException} 으로 완료하고 실행 중인 작업에 interrupt 를 건다.
+ * 큐에서 기다리는 동안 deadline 이 지난 작업은 실행하지 않는다.
+ * <p>
+ * interrupt 로는 실행 중인 JDBC 쿼리가 멈추지 않으므로, 작업은 남은 deadline 을 timeout 으로 둔 읽기 전용 트랜잭션 안에서 실행한다.
+ * JpaTransactionManager 는 이 timeout 을 Hibernate 트랜잭션 timeout 과 쿼리별 javax.persistence.query.timeout 힌트로 넘기므로
+ * deadline 이 지나면 DB 쪽에서도 쿼리가 끊기고 풀 스레드가 풀린다. JDBC timeout 은 초 단위라 올림한다.
+ * <p>
+ * bulkhead.active, bulkhead.queued, bulkhead.rejected, bulkhead.timeouts (name=...) 로 상태를 확인할 수 있다.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final Duration deadline;
+    private final PlatformTransactionManager transactionManager;
+    private final Counter rejected;
+    private final Counter timeouts;
+
+    public Bulkhead(String name, int poolSize, int queueCapacity, Duration deadline,
+                    PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.deadline = deadline;
+        this.transactionManager = transactionManager;
+        AtomicInteger sequence = new AtomicInteger();
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("bulkhead.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.queued", executor, e -> e.getQueue().size())
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("bulkhead.rejected")
+                .description("requests shed because the pool and queue were full")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("bulkhead.timeouts")
+                .description("requests that missed their deadline")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long submittedAt = System.nanoTime();
+        Future<?> running;
+        try {
+            running = executor.submit(() -> {
+                long remainingMillis = deadline.toMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submittedAt);
+                if (result.isDone() || remainingMillis <= 0) {
+                    return;
+                }
+                try {
+                    result.complete(withTimeout(remainingMillis, task));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BulkheadFullException(name);
+        }
+
+        CompletableFuture.delayedExecutor(deadline.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.completeExceptionally(new DeadlineExceededException(name, deadline))) {
+                timeouts.increment();
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private <T> T withTimeout(long remainingMillis, Supplier<T> task) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.setTimeout((int) TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999));
+        return transactionTemplate.execute(status -> task.get());
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
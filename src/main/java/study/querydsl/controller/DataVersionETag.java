@@ -0,0 +1,42 @@
+package study.querydsl.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import study.querydsl.repository.support.DataVersion;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.Objects;
+
+/**
+ * 검색 응답용 ETag. Member/Team 이 바뀔 때만 달라지므로 조건부 GET 에 쿼리 없이 답할 수 있다.
+ * <p>
+ * {@link DataVersion} 은 이 프로세스의 쓰기만 세고 재시작하면 0 부터 다시 시작하므로, 기동 시각을 같이 넣어
+ * 재시작 전에 받은 ETag 가 우연히 일치하지 않게 한다. 같은 URL 이라도 Accept 에 따라 본문이 달라지므로 Accept 도 반영한다.
+ * 다른 인스턴스에서 일어난 쓰기는 알 수 없으므로 인스턴스를 여러 개 띄우면 공유 버전이 필요하다.
+ */
+@Component
+public class DataVersionETag {
+
+    private final DataVersion dataVersion;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    public DataVersionETag(DataVersion dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
+    /**
+     * 현재 버전으로 If-None-Match 를 확인하고 ETag 헤더를 쓴다. true 면 304 가 설정된 것이므로 쿼리 없이 null 을 반환한다.
+     * 버전은 쿼리 전에 읽으므로 쿼리 도중 쓰기가 있었다면 다음 요청은 다시 본문을 받는다.
+     */
+    public boolean checkNotModified(ServletWebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String etag = "W/\"" + epoch + "-" + dataVersion.current() + "-" + Integer.toHexString(Objects.hashCode(accept)) + "\"";
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        }
+        return request.checkNotModified(etag);
+    }
+}
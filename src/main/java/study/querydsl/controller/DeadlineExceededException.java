@@ -0,0 +1,14 @@
+package study.querydsl.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DeadlineExceededException extends IllegalStateException {
+
+    public DeadlineExceededException(String bulkhead, Duration deadline) {
+        super("Request did not complete within " + deadline.toMillis() + "ms: " + bulkhead);
+    }
+}
@@ -2,14 +2,13 @@ package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import study.querydsl.entity.Member;
-import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberBulkLoader;
+import study.querydsl.repository.support.MemberGenerator;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
 
 @Profile("local")
 @Component
@@ -25,19 +24,16 @@ public class InitMember {
     @Component
     static class InitMemberService{
         @Autowired
-        EntityManager em;
+        MemberBulkLoader memberBulkLoader;
+
+        @Value("${querydsl.init.teams:2}")
+        int teams;
+
+        @Value("${querydsl.init.members:100}")
+        long members;
 
-        @Transactional
         public void init(){
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamB);
-            em.persist(teamA);
-
-            for(int i=0;i < 100;i++){
-                Team selectedTeam= i%2==0?teamA:teamB;
-                em.persist(new Member("member"+i,i,selectedTeam));
-            }
+            memberBulkLoader.load(teams, members, MemberGenerator.sequential());
         }
     }
 
@@ -1,38 +1,140 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.EstimatedPage;
+import study.querydsl.repository.support.MemberCursor;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 2000;
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+    private final MemberSearchBulkheads bulkheads;
+    private final DataVersionETag dataVersionETag;
 
+    /**
+     * v1~v3 는 데이터 버전 ETag 를 붙이고, If-None-Match 가 일치하면 content/count 쿼리 없이 304 를 돌려준다.
+     */
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition, ServletWebRequest request){
+        if (dataVersionETag.checkNotModified(request)) {
+            return null;
+        }
         return memberJpaRepository.search(condition);
     }
 
+    /**
+     * 이하 async 엔드포인트는 전용 bulkhead 에서 실행되어 servlet 스레드를 DB 대기 동안 붙잡지 않는다.
+     * bulkhead 가 가득 찼거나 deadline 을 넘기면 503 을 돌려준다.
+     */
+    @GetMapping("/v1/members/async")
+    public CompletableFuture<List<MemberTeamDto>> searchMemberV1Async(MemberSearchCondition condition){
+        return bulkheads.v1().submit(() -> memberJpaRepository.search(condition));
+    }
+
+
+    @GetMapping("/v1/members/export")
+    public void exportMembers(MemberSearchCondition condition,
+                              @RequestParam(defaultValue = "NDJSON") MemberExportFormat format,
+                              HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        format.writeHeader(writer);
+        memberRepository.searchStream(condition, row -> {
+            try {
+                format.writeRow(writer, objectMapper, row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
 
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable, ServletWebRequest request){
+        if (dataVersionETag.checkNotModified(request)) {
+            return null;
+        }
         return memberRepository.searchPageSimple(condition,pageable);
     }
 
+    /**
+     * 무한 스크롤용. total 을 세지 않으므로 페이지마다 쿼리 하나만 실행한다.
+     */
+    @GetMapping("/v2/members/slice")
+    public Slice<MemberTeamDto> searchMemberV2Slice(MemberSearchCondition condition, Pageable pageable, ServletWebRequest request){
+        if (dataVersionETag.checkNotModified(request)) {
+            return null;
+        }
+        return memberRepository.searchSlice(condition,pageable);
+    }
+
+    @GetMapping("/v2/members/async")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV2Async(MemberSearchCondition condition, Pageable pageable){
+        return bulkheads.v2().submit(() -> memberRepository.searchPageSimple(condition,pageable));
+    }
+
 
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable, ServletWebRequest request){
+        if (dataVersionETag.checkNotModified(request)) {
+            return null;
+        }
         return memberRepository.searchPageComplex(condition,pageable);
     }
+
+    @GetMapping("/v3/members/async")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV3Async(MemberSearchCondition condition, Pageable pageable){
+        return bulkheads.v3().submit(() -> memberRepository.searchPageComplex(condition,pageable));
+    }
+
+    @GetMapping("/v3/members/estimated")
+    public EstimatedPage<MemberTeamDto> searchMemberV3Estimated(MemberSearchCondition condition, Pageable pageable,
+                                                                @RequestParam(defaultValue = "false") boolean exact){
+        return memberRepository.searchPageEstimated(condition,pageable,exact);
+    }
+
+    @GetMapping("/v3/members/concurrent")
+    public Page<MemberTeamDto> searchMemberV3Concurrent(MemberSearchCondition condition, Pageable pageable){
+        return memberRepository.searchPageConcurrent(condition,pageable);
+    }
+
+
+    @GetMapping("/v4/members")
+    public MemberCursorPage searchMemberV4(MemberSearchCondition condition,
+                                           @RequestParam(defaultValue = "ID") MemberCursor.Sort sort,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "20") int size){
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        return memberRepository.searchByCursor(condition,sort,cursor,pageSize);
+    }
 }
@@ -0,0 +1,66 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public enum MemberExportFormat {
+
+    NDJSON("application/x-ndjson") {
+        @Override
+        void writeHeader(Writer writer) {
+        }
+
+        @Override
+        void writeRow(Writer writer, ObjectMapper objectMapper, MemberTeamDto row) throws IOException {
+            writer.write(objectMapper.writeValueAsString(row));
+            writer.write('\n');
+        }
+    },
+    CSV("text/csv") {
+        @Override
+        void writeHeader(Writer writer) throws IOException {
+            writer.write("memberId,username,age,teamId,teamName\n");
+        }
+
+        @Override
+        void writeRow(Writer writer, ObjectMapper objectMapper, MemberTeamDto row) throws IOException {
+            writer.write(String.valueOf(row.getMemberId()));
+            writer.write(',');
+            writer.write(csv(row.getUsername()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getAge()));
+            writer.write(',');
+            writer.write(row.getTeamId() != null ? String.valueOf(row.getTeamId()) : "");
+            writer.write(',');
+            writer.write(csv(row.getTeamName()));
+            writer.write('\n');
+        }
+
+        private String csv(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    };
+
+    private final String contentType;
+
+    MemberExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    abstract void writeHeader(Writer writer) throws IOException;
+
+    abstract void writeRow(Writer writer, ObjectMapper objectMapper, MemberTeamDto row) throws IOException;
+}
@@ -0,0 +1,56 @@
+package study.querydsl.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * 비동기 검색 엔드포인트별 {@link Bulkhead}
+ * <p>
+ * 느린 count 가 있는 v3 가 몰려도 v1/v2 와 Tomcat 스레드는 영향을 받지 않도록 엔드포인트마다 풀을 나눈다.
+ */
+@Component
+public class MemberSearchBulkheads {
+
+    private final Bulkhead v1;
+    private final Bulkhead v2;
+    private final Bulkhead v3;
+
+    public MemberSearchBulkheads(MeterRegistry meterRegistry, PlatformTransactionManager transactionManager,
+                                 @Value("${querydsl.bulkhead.members-v1.pool-size:8}") int v1PoolSize,
+                                 @Value("${querydsl.bulkhead.members-v1.queue-capacity:32}") int v1QueueCapacity,
+                                 @Value("${querydsl.bulkhead.members-v1.deadline:2s}") Duration v1Deadline,
+                                 @Value("${querydsl.bulkhead.members-v2.pool-size:4}") int v2PoolSize,
+                                 @Value("${querydsl.bulkhead.members-v2.queue-capacity:16}") int v2QueueCapacity,
+                                 @Value("${querydsl.bulkhead.members-v2.deadline:3s}") Duration v2Deadline,
+                                 @Value("${querydsl.bulkhead.members-v3.pool-size:4}") int v3PoolSize,
+                                 @Value("${querydsl.bulkhead.members-v3.queue-capacity:16}") int v3QueueCapacity,
+                                 @Value("${querydsl.bulkhead.members-v3.deadline:5s}") Duration v3Deadline) {
+        this.v1 = new Bulkhead("members-v1", v1PoolSize, v1QueueCapacity, v1Deadline, transactionManager, meterRegistry);
+        this.v2 = new Bulkhead("members-v2", v2PoolSize, v2QueueCapacity, v2Deadline, transactionManager, meterRegistry);
+        this.v3 = new Bulkhead("members-v3", v3PoolSize, v3QueueCapacity, v3Deadline, transactionManager, meterRegistry);
+    }
+
+    public Bulkhead v1() {
+        return v1;
+    }
+
+    public Bulkhead v2() {
+        return v2;
+    }
+
+    public Bulkhead v3() {
+        return v3;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        v1.shutdown();
+        v2.shutdown();
+        v3.shutdown();
+    }
+}
@@ -0,0 +1,286 @@
+package study.querydsl.controller;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.repository.MemberBitmapIndex;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+import study.querydsl.repository.MemberUsernameIndex;
+import study.querydsl.repository.TeamStatisticsStore;
+import study.querydsl.repository.support.CompiledQueryCache;
+import study.querydsl.repository.support.InListPadding;
+import study.querydsl.repository.support.MemberCountEstimator;
+import study.querydsl.repository.support.MemberCursor;
+import study.querydsl.repository.support.MemberFetchPlan;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 기동 시 MemberRepositoryImpl, MemberJpaRepository, MemberTestRepository 의 모든 검색 조건 모양을 한 번씩 실행해
+ * Querydsl 직렬화({@link CompiledQueryCache}), HQL 파싱과 SQL 생성(Hibernate query plan cache)을 미리 끝내 둔다.
+ * <p>
+ * {@link InitMember} 의 데이터 적재 이후 ApplicationRunner 로 실행된다. Spring Boot 는 runner 가 모두 끝난 뒤에
+ * readiness 를 ACCEPTING_TRAFFIC 으로 바꾸므로 /actuator/health/readiness 는 warm-up 이 끝나야 UP 이 된다.
+ * <p>
+ * 조건 값은 아무 행도 맞지 않는 값을 쓰고, username/bitmap 인덱스와 결과 캐시를 거치지 않도록 롤백하는 쓰기 트랜잭션 안에서 실행한다.
+ * 조건이 하나도 없는 목록 조회(findAll, basicSelect 등)는 테이블 전체를 읽으므로 실행하지 않는다.
+ * <p>
+ * PREFIX/CONTAINS 검색은 username 인덱스에서 찾은 id 목록(최대 max-ids 개)을 memberIds 로 넘기고, Hibernate 는 in 목록을
+ * 2의 거듭제곱 길이로 채워 길이마다 plan 을 따로 만든다. 그래서 username 없이 memberIds 가 붙는 모양은
+ * 1 부터 max-ids 를 채운 길이까지 모든 길이로 한 번씩 실행한다.
+ * 인덱스는 트랜잭션 밖에서 먼저 다시 만들고, 인덱스를 거치는 경로는 읽기 전용 트랜잭션에서 한 번 실행한다.
+ */
+@Slf4j
+@Component
+public class QueryWarmUp implements ApplicationRunner {
+
+    private static final String NO_MATCH = "__warm_up__";
+    private static final UsernameMatch[] USERNAME_MODES = {null, UsernameMatch.EXACT, UsernameMatch.PREFIX};
+
+    private final MemberRepository memberRepository;
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberTestRepository memberTestRepository;
+    private final MemberUsernameIndex usernameIndex;
+    private final MemberBitmapIndex bitmapIndex;
+    private final CompiledQueryCache compiledQueryCache;
+    private final Statistics statistics;
+    private final TeamStatisticsStore teamStatisticsStore;
+    private final MemberCountEstimator countEstimator;
+    private final TransactionTemplate rollbackTemplate;
+    private final TransactionTemplate readOnlyTemplate;
+    private final boolean enabled;
+    private final int lookupChunkSize;
+    private final int maxIds;
+
+    private volatile WarmUpReport report;
+
+    public QueryWarmUp(MemberRepository memberRepository, MemberJpaRepository memberJpaRepository,
+                       MemberTestRepository memberTestRepository, MemberUsernameIndex usernameIndex,
+                       MemberBitmapIndex bitmapIndex, TeamStatisticsStore teamStatisticsStore,
+                       MemberCountEstimator countEstimator,
+                       CompiledQueryCache compiledQueryCache,
+                       EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${querydsl.warm-up.enabled:true}") boolean enabled,
+                       @Value("${querydsl.member-lookup.chunk-size:512}") int lookupChunkSize,
+                       @Value("${querydsl.username-index.max-ids:1000}") int maxIds) {
+        this.memberRepository = memberRepository;
+        this.memberJpaRepository = memberJpaRepository;
+        this.memberTestRepository = memberTestRepository;
+        this.usernameIndex = usernameIndex;
+        this.bitmapIndex = bitmapIndex;
+        this.teamStatisticsStore = teamStatisticsStore;
+        this.countEstimator = countEstimator;
+        this.compiledQueryCache = compiledQueryCache;
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.rollbackTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.lookupChunkSize = InListPadding.chunkSize(lookupChunkSize);
+        this.maxIds = Math.min(maxIds, MemberSearchCondition.MAX_MEMBER_IDS);
+
+        Gauge.builder("hibernate.query.plan.cache.hit.ratio", statistics,
+                        s -> ratio(s.getQueryPlanCacheHitCount(), s.getQueryPlanCacheMissCount()))
+                .description("hit ratio of the HQL query plan cache since startup (needs hibernate.generate_statistics)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 마지막 warm-up 결과. 아직 실행하지 않았거나 꺼져 있으면 null
+     */
+    public WarmUpReport getReport() {
+        return report;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            warmUp();
+        }
+    }
+
+    public WarmUpReport warmUp() {
+        long start = System.nanoTime();
+        long compiledHits = compiledQueryCache.hitCount();
+        long compiledMisses = compiledQueryCache.missCount();
+        long planHits = statistics.getQueryPlanCacheHitCount();
+        long planMisses = statistics.getQueryPlanCacheMissCount();
+
+        Calls calls = new Calls();
+        calls.run("MemberUsernameIndex", usernameIndex::rebuild);
+        calls.run("MemberBitmapIndex", bitmapIndex::rebuild);
+        calls.run("TeamStatisticsStore", teamStatisticsStore::rebuild);
+        calls.run("MemberCountEstimator", countEstimator::refresh);
+        for (MemberSearchCondition condition : conditions(maxIds)) {
+            rollbackTemplate.executeWithoutResult(status -> {
+                warmUp(condition, calls);
+                status.setRollbackOnly();
+            });
+        }
+        rollbackTemplate.executeWithoutResult(status -> {
+            for (int size = 1; size <= lookupChunkSize; size <<= 1) {
+                List<Long> ids = noMembers(size);
+                calls.run("findAllByIdInOrder", () -> memberRepository.findAllByIdInOrder(ids));
+            }
+            status.setRollbackOnly();
+        });
+        for (UsernameMatch match : new UsernameMatch[]{UsernameMatch.PREFIX, UsernameMatch.CONTAINS}) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername(NO_MATCH);
+            condition.setUsernameMatch(match);
+            readOnlyTemplate.executeWithoutResult(status -> warmUp(condition, calls));
+        }
+
+        WarmUpReport result = new WarmUpReport(
+                calls.executed,
+                calls.failed,
+                (System.nanoTime() - start) / 1_000_000,
+                compiledQueryCache.hitCount() - compiledHits,
+                compiledQueryCache.missCount() - compiledMisses,
+                statistics.getQueryPlanCacheHitCount() - planHits,
+                statistics.getQueryPlanCacheMissCount() - planMisses,
+                ratio(statistics.getQueryPlanCacheHitCount(), statistics.getQueryPlanCacheMissCount()));
+        report = result;
+        log.info("query warm-up finished: {}", result);
+        return result;
+    }
+
+    private void warmUp(MemberSearchCondition condition, Calls calls) {
+        PageRequest first = PageRequest.of(0, 20);
+        //offset 이 있으면 limit 만 있는 첫 페이지와 다른 SQL 이 만들어진다.
+        PageRequest next = PageRequest.of(1, 20);
+        boolean filtered = isFiltered(condition);
+
+        if (filtered) {
+            calls.run("search", () -> memberRepository.search(condition));
+            calls.run("searchStream", () -> memberRepository.searchStream(condition, row -> { }));
+            for (MemberFetchPlan fetchPlan : MemberFetchPlan.values()) {
+                calls.run("searchMembers", () -> memberRepository.searchMembers(condition, fetchPlan));
+            }
+            calls.run("MemberJpaRepository.search", () -> memberJpaRepository.search(condition));
+            calls.run("searchByBuilder", () -> memberJpaRepository.searchByBuilder(condition));
+        }
+        if (condition.getAgeGoe() != null && condition.getAgeLoe() != null) {
+            calls.run("searchMember", () -> memberJpaRepository.searchMember(condition));
+        }
+
+        for (PageRequest pageable : new PageRequest[]{first, next}) {
+            calls.run("searchPageSimple", () -> memberRepository.searchPageSimple(condition, pageable));
+            calls.run("searchPageComplex", () -> memberRepository.searchPageComplex(condition, pageable));
+            calls.run("searchPageEstimated", () -> memberRepository.searchPageEstimated(condition, pageable, true));
+            calls.run("searchPageConcurrent", () -> memberRepository.searchPageConcurrent(condition, pageable));
+            calls.run("searchSlice", () -> memberRepository.searchSlice(condition, pageable));
+            calls.run("searchPageByApplyPage", () -> memberTestRepository.searchPageByApplyPage(condition, pageable));
+            calls.run("applyPagination", () -> memberTestRepository.applyPagination(condition, pageable));
+            calls.run("applyPagination2", () -> memberTestRepository.applyPagination2(condition, pageable));
+            calls.run("applySlicing", () -> memberTestRepository.applySlicing(condition, pageable));
+            calls.run("applyConcurrentPagination", () -> memberTestRepository.applyConcurrentPagination(condition, pageable));
+        }
+
+        MemberTeamDto last = new MemberTeamDto(Long.MAX_VALUE, NO_MATCH, Integer.MAX_VALUE, null, null);
+        for (MemberCursor.Sort sort : MemberCursor.Sort.values()) {
+            calls.run("searchByCursor", () -> memberRepository.searchByCursor(condition, sort, null, 20));
+            String cursor = MemberCursor.after(sort, last).encode();
+            calls.run("searchByCursor", () -> memberRepository.searchByCursor(condition, sort, cursor, 20));
+        }
+    }
+
+    /**
+     * username(없음/EXACT/like) x memberIds x teamName x ageGoe x ageLoe 의 모든 조합. 값은 아무 행도 맞지 않게 고른다.
+     * username 없이 memberIds 가 붙는 모양은 in 목록 길이마다 하나씩 더 만든다.
+     */
+    private static List<MemberSearchCondition> conditions(int maxIds) {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        for (UsernameMatch usernameMode : USERNAME_MODES) {
+            for (int bits = 0; bits < 1 << 4; bits++) {
+                boolean hasMemberIds = (bits & 1) != 0;
+                int maxLength = hasMemberIds && usernameMode == null ? InListPadding.paddedSize(maxIds) : 1;
+                for (int length = 1; length <= maxLength; length <<= 1) {
+                    MemberSearchCondition condition = new MemberSearchCondition();
+                    if (usernameMode != null) {
+                        condition.setUsername(NO_MATCH);
+                        condition.setUsernameMatch(usernameMode);
+                    }
+                    if (hasMemberIds) {
+                        condition.setMemberIds(noMembers(Math.min(length, maxIds)));
+                    }
+                    if ((bits & 2) != 0) {
+                        condition.setTeamName(NO_MATCH);
+                    }
+                    if ((bits & 4) != 0) {
+                        condition.setAgeGoe(Integer.MAX_VALUE);
+                    }
+                    if ((bits & 8) != 0) {
+                        condition.setAgeLoe(Integer.MIN_VALUE);
+                    }
+                    conditions.add(condition);
+                }
+            }
+        }
+        return conditions;
+    }
+
+    private static List<Long> noMembers(int size) {
+        List<Long> ids = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            ids.add(-id);
+        }
+        return ids;
+    }
+
+    private static boolean isFiltered(MemberSearchCondition condition) {
+        return condition.getUsername() != null || condition.getMemberIds() != null || condition.getTeamName() != null
+                || condition.getAgeGoe() != null || condition.getAgeLoe() != null;
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+
+    private static class Calls {
+        private int executed;
+        private int failed;
+
+        void run(String name, Runnable call) {
+            executed++;
+            try {
+                call.run();
+            } catch (RuntimeException e) {
+                //warm-up 실패로 기동을 막지는 않는다. 해당 쿼리는 첫 요청 때 준비된다.
+                failed++;
+                log.warn("query warm-up failed: {}", name, e);
+            }
+        }
+    }
+
+    @lombok.Value
+    public static class WarmUpReport {
+        int queries;
+        int failures;
+        long elapsedMillis;
+        long compiledQueryCacheHits;
+        long compiledQueryCacheMisses;
+        long planCacheHits;
+        long planCacheMisses;
+        //기동 이후 전체 hit ratio. 통계가 꺼져 있으면 NaN
+        double planCacheHitRatio;
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.repository.TeamStatisticsStore;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamStatisticsStore teamStatisticsStore;
+
+    /**
+     * 통계를 다시 만드는 중이면 직전 통계에 Warning: 110 을 붙여 돌려주고, 기동 후 처음 만들기 전이면 503 을 돌려준다.
+     */
+    @GetMapping("/v1/teams/statistics")
+    public ResponseEntity<List<TeamStatisticsDto>> teamStatistics(){
+        boolean stale = teamStatisticsStore.isStale();
+        List<TeamStatisticsDto> statistics = teamStatisticsStore.statistics();
+        if (stale) {
+            return ResponseEntity.ok().header(HttpHeaders.WARNING, "110 - \"Response is Stale\"").body(statistics);
+        }
+        return ResponseEntity.ok(statistics);
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class MemberCursorPage {
+
+    private final List<MemberTeamDto> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor;
+
+    public MemberCursorPage(List<MemberTeamDto> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -2,11 +2,41 @@ package study.querydsl.dto;
 
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class MemberSearchCondition {
 
+    //memberIds 최대 개수. 요청 파라미터로도 바인딩되므로 in 목록 길이를 제한한다.
+    public static final int MAX_MEMBER_IDS = 1000;
+
     private String username;
+    private UsernameMatch usernameMatch;
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+    //id 목록 필터. PREFIX/CONTAINS 검색은 username 인덱스에서 찾은 id 로 바뀌어 여기에 들어온다.
+    private List<Long> memberIds;
+
+    public void setMemberIds(List<Long> memberIds) {
+        if (memberIds != null && memberIds.size() > MAX_MEMBER_IDS) {
+            throw new IllegalArgumentException("memberIds must not exceed " + MAX_MEMBER_IDS + " ids: " + memberIds.size());
+        }
+        this.memberIds = memberIds;
+    }
+
+    public boolean isExactUsername() {
+        return usernameMatch == null || usernameMatch == UsernameMatch.EXACT;
+    }
+
+    public MemberSearchCondition copy() {
+        MemberSearchCondition copy = new MemberSearchCondition();
+        copy.setUsername(username);
+        copy.setUsernameMatch(usernameMatch);
+        copy.setTeamName(teamName);
+        copy.setAgeGoe(ageGoe);
+        copy.setAgeLoe(ageLoe);
+        copy.setMemberIds(memberIds);
+        return copy;
+    }
 }
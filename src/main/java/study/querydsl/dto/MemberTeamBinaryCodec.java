@@ -0,0 +1,259 @@
+package study.querydsl.dto;
+
+import lombok.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * {@link MemberTeamDto} 목록/페이지를 열 단위 바이너리로 인코딩/디코딩한다. 서버와 내부 클라이언트가 같이 쓴다.
+ * <pre>
+ * header    : 'M' 'T' version kind(0=list, 1=page)
+ * page      : pageNumber pageSize totalElements           (kind=1 일 때만, varint)
+ * rows      : rowCount                                    (varint)
+ * teams     : teamCount { teamId(null 여부 1byte + zigzag varint) teamName(string) }
+ * memberId  : rowCount x zigzag varint, 직전 id 와의 차이
+ * age       : rowCount x zigzag varint
+ * team      : rowCount x varint, teams 사전의 index + 1 (0 = 팀 없음)
+ * username  : rowCount x string
+ * string    : varint (UTF-8 길이 + 1, 0 = null) + bytes
+ * </pre>
+ * teamId/teamName 은 행마다 반복되므로 사전으로 한 번만 쓰고, 보통 오름차순인 memberId 는 차이만 써서 한두 바이트로 줄인다.
+ * 페이지의 정렬 정보는 포함하지 않는다. 바이트 단위로 읽고 쓰므로 버퍼링된 스트림을 넘긴다.
+ */
+public final class MemberTeamBinaryCodec {
+
+    public static final String CONTENT_TYPE = "application/x-member-team-columns";
+
+    private static final int VERSION = 1;
+    private static final int KIND_LIST = 0;
+    private static final int KIND_PAGE = 1;
+
+    private MemberTeamBinaryCodec() {
+    }
+
+    public static void writeList(List<MemberTeamDto> rows, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        writeHeader(data, KIND_LIST);
+        writeRows(data, rows);
+        data.flush();
+    }
+
+    public static void writePage(Page<MemberTeamDto> page, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        writeHeader(data, KIND_PAGE);
+        Pageable pageable = page.getPageable();
+        writeVarLong(data, pageable.isPaged() ? pageable.getPageNumber() : 0);
+        writeVarLong(data, pageable.isPaged() ? pageable.getPageSize() : page.getNumberOfElements());
+        writeVarLong(data, page.getTotalElements());
+        writeRows(data, page.getContent());
+        data.flush();
+    }
+
+    /**
+     * 목록이든 페이지든 행만 읽는다.
+     */
+    public static List<MemberTeamDto> readList(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (readHeader(data) == KIND_PAGE) {
+            readVarLong(data);
+            readVarLong(data);
+            readVarLong(data);
+        }
+        return readRows(data);
+    }
+
+    public static Page<MemberTeamDto> readPage(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (readHeader(data) != KIND_PAGE) {
+            throw new IOException("not a page payload");
+        }
+        int pageNumber = (int) readVarLong(data);
+        int pageSize = (int) readVarLong(data);
+        long total = readVarLong(data);
+        List<MemberTeamDto> rows = readRows(data);
+        return new PageImpl<>(rows, PageRequest.of(pageNumber, Math.max(pageSize, 1)), total);
+    }
+
+    private static void writeHeader(DataOutputStream data, int kind) throws IOException {
+        data.writeByte('M');
+        data.writeByte('T');
+        data.writeByte(VERSION);
+        data.writeByte(kind);
+    }
+
+    private static int readHeader(DataInputStream data) throws IOException {
+        if (data.readUnsignedByte() != 'M' || data.readUnsignedByte() != 'T') {
+            throw new IOException("not a member/team payload");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported version: " + version);
+        }
+        return data.readUnsignedByte();
+    }
+
+    private static void writeRows(DataOutputStream data, List<MemberTeamDto> rows) throws IOException {
+        int size = rows.size();
+        writeVarLong(data, size);
+
+        //teamId 와 teamName 은 한 쌍으로 다닌다. 같은 teamId 에 다른 이름이 오는 경우를 대비해 둘 다 키로 쓴다.
+        Map<TeamEntry, Integer> dictionary = new HashMap<>();
+        List<TeamEntry> teams = new ArrayList<>();
+        int[] teamIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            MemberTeamDto row = rows.get(i);
+            if (row.getTeamId() == null && row.getTeamName() == null) {
+                continue;
+            }
+            TeamEntry team = new TeamEntry(row.getTeamId(), row.getTeamName());
+            Integer index = dictionary.get(team);
+            if (index == null) {
+                index = teams.size();
+                dictionary.put(team, index);
+                teams.add(team);
+            }
+            teamIndexes[i] = index + 1;
+        }
+
+        writeVarLong(data, teams.size());
+        for (TeamEntry team : teams) {
+            writeNullableLong(data, team.teamId);
+            writeString(data, team.teamName);
+        }
+
+        long previousId = 0;
+        for (MemberTeamDto row : rows) {
+            long memberId = Objects.requireNonNull(row.getMemberId(), "memberId");
+            writeVarLong(data, zigzag(memberId - previousId));
+            previousId = memberId;
+        }
+        for (MemberTeamDto row : rows) {
+            writeVarLong(data, zigzag(row.getAge()));
+        }
+        for (int teamIndex : teamIndexes) {
+            writeVarLong(data, teamIndex);
+        }
+        for (MemberTeamDto row : rows) {
+            writeString(data, row.getUsername());
+        }
+    }
+
+    private static List<MemberTeamDto> readRows(DataInputStream data) throws IOException {
+        int size = (int) readVarLong(data);
+
+        int teamCount = (int) readVarLong(data);
+        TeamEntry[] teams = new TeamEntry[teamCount];
+        for (int i = 0; i < teamCount; i++) {
+            teams[i] = new TeamEntry(readNullableLong(data), readString(data));
+        }
+
+        long[] memberIds = new long[size];
+        long previousId = 0;
+        for (int i = 0; i < size; i++) {
+            previousId += unzigzag(readVarLong(data));
+            memberIds[i] = previousId;
+        }
+        int[] ages = new int[size];
+        for (int i = 0; i < size; i++) {
+            ages[i] = (int) unzigzag(readVarLong(data));
+        }
+        int[] teamIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            teamIndexes[i] = (int) readVarLong(data);
+        }
+
+        List<MemberTeamDto> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            TeamEntry team = teamIndexes[i] > 0 ? teams[teamIndexes[i] - 1] : null;
+            rows.add(new MemberTeamDto(memberIds[i], readString(data), ages[i],
+                    team != null ? team.teamId : null,
+                    team != null ? team.teamName : null));
+        }
+        return rows;
+    }
+
+    private static void writeNullableLong(DataOutputStream data, Long value) throws IOException {
+        if (value == null) {
+            data.writeByte(0);
+            return;
+        }
+        data.writeByte(1);
+        writeVarLong(data, zigzag(value));
+    }
+
+    private static Long readNullableLong(DataInputStream data) throws IOException {
+        return data.readUnsignedByte() == 0 ? null : unzigzag(readVarLong(data));
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(data, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(data, bytes.length + 1L);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        long length = readVarLong(data);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) (length - 1)];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(DataOutputStream data, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            data.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = data.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Value
+    private static class TeamEntry {
+        Long teamId;
+        String teamName;
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class TeamStatisticsDto {
+
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    private long ageSum;
+    private double ageAvg;
+    private int ageMin;
+    private int ageMax;
+
+    public TeamStatisticsDto(Long teamId, String teamName, long memberCount, long ageSum, int ageMin, int ageMax) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.ageAvg = memberCount == 0 ? 0 : (double) ageSum / memberCount;
+        this.ageMin = ageMin;
+        this.ageMax = ageMax;
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.dto;
+
+/**
+ * {@link MemberSearchCondition#getUsername()} 를 비교하는 방식. 지정하지 않으면 EXACT 다.
+ */
+public enum UsernameMatch {
+
+    EXACT,
+    PREFIX,
+    CONTAINS;
+
+    public static final char LIKE_ESCAPE = '!';
+
+    /**
+     * like 에 넘길 패턴. 입력에 들어 있는 와일드카드 문자는 {@link #LIKE_ESCAPE} 로 이스케이프한다.
+     */
+    public String likePattern(String username) {
+        String escaped = username
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+        switch (this) {
+            case PREFIX:
+                return escaped + "%";
+            case CONTAINS:
+                return "%" + escaped + "%";
+            default:
+                return escaped;
+        }
+    }
+}
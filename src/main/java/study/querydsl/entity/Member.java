@@ -1,16 +1,29 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age, member_id"),
+        //team_id join + age 범위 조건에서 MemberTeamDto 의 member 컬럼을 테이블 접근 없이 읽는 커버링 인덱스
+        @Index(name = "idx_member_team_age", columnList = "team_id, age, member_id, username")
+})
+@NamedEntityGraph(name = "Member.team", attributeNodes = @NamedAttributeNode("team"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter@Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id","username","age"})
 public class Member {
-    @Id@GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name ="member_id")
     private Long id;
     private String username;
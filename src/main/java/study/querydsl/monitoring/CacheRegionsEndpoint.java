@@ -0,0 +1,51 @@
+package study.querydsl.monitoring;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hibernate 2차 캐시/쿼리 캐시 region 별 통계 (/actuator/cacheregions)
+ */
+@Component
+@Endpoint(id = "cacheregions")
+public class CacheRegionsEndpoint {
+
+    private final Statistics statistics;
+
+    public CacheRegionsEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Long>> regions() {
+        Map<String, Map<String, Long>> regions = new TreeMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Long> values = new LinkedHashMap<>();
+            values.put("hitCount", region.getHitCount());
+            values.put("missCount", region.getMissCount());
+            values.put("putCount", region.getPutCount());
+            values.put("elementCountInMemory", region.getElementCountInMemory());
+            regions.put(regionName, values);
+        }
+
+        Map<String, Long> queryCache = new LinkedHashMap<>();
+        queryCache.put("hitCount", statistics.getQueryCacheHitCount());
+        queryCache.put("missCount", statistics.getQueryCacheMissCount());
+        queryCache.put("putCount", statistics.getQueryCachePutCount());
+        regions.put("query-cache", queryCache);
+        return regions;
+    }
+}
@@ -0,0 +1,81 @@
+package study.querydsl.monitoring;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * p6spy 로 실행되는 SQL 을 현재 스레드의 {@link QueryScope} 에 센다.
+ * <p>
+ * scope 가 없으면 ThreadLocal 조회 한 번으로 끝나므로 운영에서 항상 등록되어 있어도 부담이 없다.
+ * batch 는 executeBatch 한 번을 한 문장으로 센다. 다른 스레드(병렬 count 등)에서 실행된 SQL 은 세지 않는다.
+ */
+@Slf4j
+@Component
+public class QueryCountGuard extends SimpleJdbcEventListener {
+
+    private static final ThreadLocal<QueryScope> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("in\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int repeatThreshold;
+
+    public QueryCountGuard(@Value("${querydsl.query-guard.repeat-threshold:3}") int repeatThreshold) {
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    /**
+     * 현재 스레드에 scope 를 연다. 이미 열린 scope 가 있으면 그 안에 중첩되고, 안쪽에서 센 문장은 바깥에도 더해진다.
+     */
+    public QueryScope begin(String name) {
+        QueryScope scope = new QueryScope(this, CURRENT.get(), name, repeatThreshold);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    void end(QueryScope scope) {
+        if (CURRENT.get() != scope) {
+            return;
+        }
+        if (scope.getParent() != null) {
+            CURRENT.set(scope.getParent());
+        } else {
+            CURRENT.remove();
+        }
+        if (scope.hasRepeatedStatements()) {
+            log.warn("possible N+1: {}", scope.summary(-1));
+        }
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        QueryScope scope = CURRENT.get();
+        if (scope != null) {
+            scope.record(fingerprint(statementInformation.getSql()));
+        }
+    }
+
+    /**
+     * 주석과 리터럴을 지우고 IN 목록을 하나로 접어 같은 모양의 SQL 이 같은 값이 되게 한다.
+     */
+    static String fingerprint(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String normalized = COMMENT.matcher(sql).replaceAll(" ");
+        normalized = STRING_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+        return IN_LIST.matcher(normalized).replaceAll("in (?)");
+    }
+}
@@ -0,0 +1,62 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 요청 중 sample-rate 비율만 {@link QueryScope} 로 감싸 요청당 SQL 수를 센다.
+ * <p>
+ * max-statements 를 넘거나 같은 SQL 이 반복되면 로그를 남기고 repository.query.guard.violations 를 올린다.
+ * 응답은 이미 만들어진 뒤이므로 요청을 실패시키지는 않는다. sample-rate 가 0 이면 아무것도 하지 않는다.
+ */
+@Slf4j
+@Component
+public class QueryGuardFilter extends OncePerRequestFilter {
+
+    private final QueryCountGuard guard;
+    private final double sampleRate;
+    private final int maxStatements;
+    private final Counter violations;
+
+    public QueryGuardFilter(QueryCountGuard guard, MeterRegistry registry,
+                            @Value("${querydsl.query-guard.sample-rate:0.0}") double sampleRate,
+                            @Value("${querydsl.query-guard.max-statements-per-request:30}") int maxStatements) {
+        this.guard = guard;
+        this.sampleRate = sampleRate;
+        this.maxStatements = maxStatements;
+        this.violations = Counter.builder("repository.query.guard.violations")
+                .description("sampled requests that exceeded the statement limit")
+                .register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        QueryScope scope = guard.begin(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            scope.close();
+            if (scope.getStatementCount() > maxStatements) {
+                violations.increment();
+                log.warn("statement limit exceeded: {}", scope.summary(maxStatements));
+            }
+        }
+    }
+}
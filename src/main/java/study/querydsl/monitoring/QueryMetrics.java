@@ -0,0 +1,57 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.proxy.HibernateProxy;
+
+import javax.persistence.Entity;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 리포지토리 메서드 하나에 대한 meter 묶음
+ * <p>
+ * meter 는 {@link RepositoryMetrics} 에서 미리 만들어 두므로 호출 경로에서는 태그/빌더 객체를 만들지 않는다.
+ * 호출하는 쪽은 {@code System.nanoTime()} 으로 시작 시각만 잡아서 넘긴다.
+ */
+public class QueryMetrics {
+
+    private final Timer contentTimer;
+    private final Timer countTimer;
+    private final DistributionSummary rows;
+    private final DistributionSummary hydratedEntities;
+
+    QueryMetrics(Timer contentTimer, Timer countTimer, DistributionSummary rows, DistributionSummary hydratedEntities) {
+        this.contentTimer = contentTimer;
+        this.countTimer = countTimer;
+        this.rows = rows;
+        this.hydratedEntities = hydratedEntities;
+    }
+
+    public void recordContent(long startNanos, int rowCount, int hydratedCount) {
+        contentTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        rows.record(rowCount);
+        hydratedEntities.record(hydratedCount);
+    }
+
+    /**
+     * 결과가 엔티티이면 행 수를, DTO/튜플 projection 이면 0 을 hydration 건수로 기록한다.
+     */
+    public <T> List<T> recordContent(long startNanos, List<T> results) {
+        recordContent(startNanos, results.size(), isEntityResult(results) ? results.size() : 0);
+        return results;
+    }
+
+    public long recordCount(long startNanos, long total) {
+        countTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        return total;
+    }
+
+    private static boolean isEntityResult(List<?> results) {
+        if (results.isEmpty()) {
+            return false;
+        }
+        Object first = results.get(0);
+        return first instanceof HibernateProxy || (first != null && first.getClass().isAnnotationPresent(Entity.class));
+    }
+}
@@ -0,0 +1,126 @@
+package study.querydsl.monitoring;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link QueryCountGuard#begin} 부터 close 까지 현재 스레드에서 실행된 SQL 수와 fingerprint 별 반복 횟수
+ * <p>
+ * 같은 fingerprint 가 repeatThreshold 번 이상 나오면 N+1 의심으로 보고 처음 반복된 시점의 호출 위치를 남긴다.
+ */
+public class QueryScope implements AutoCloseable {
+
+    private final QueryCountGuard guard;
+    private final QueryScope parent;
+    private final String name;
+    private final int repeatThreshold;
+
+    private int statementCount;
+    private final Map<String, Repetition> repetitions = new LinkedHashMap<>();
+
+    QueryScope(QueryCountGuard guard, QueryScope parent, String name, int repeatThreshold) {
+        this.guard = guard;
+        this.parent = parent;
+        this.name = name;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    void record(String fingerprint) {
+        statementCount++;
+        Repetition repetition = repetitions.computeIfAbsent(fingerprint, key -> new Repetition());
+        repetition.count++;
+        //스택은 반복이 처음 확인될 때 한 번만 잡는다.
+        if (repetition.count == 2) {
+            repetition.callSite = CallSite.current();
+        }
+        if (parent != null) {
+            parent.record(fingerprint);
+        }
+    }
+
+    QueryScope getParent() {
+        return parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * repeatThreshold 번 이상 실행된 fingerprint 와 실행 횟수
+     */
+    public Map<String, Integer> getRepeatedStatements() {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        repetitions.forEach((fingerprint, repetition) -> {
+            if (repetition.count >= repeatThreshold) {
+                repeated.put(fingerprint, repetition.count);
+            }
+        });
+        return Collections.unmodifiableMap(repeated);
+    }
+
+    public void assertAtMost(int maxStatements) {
+        if (statementCount > maxStatements) {
+            throw new TooManyStatementsException(summary(maxStatements));
+        }
+    }
+
+    /**
+     * @param maxStatements 음수이면 한도를 출력하지 않는다.
+     */
+    String summary(int maxStatements) {
+        StringBuilder summary = new StringBuilder()
+                .append(name).append(" executed ").append(statementCount).append(" statements");
+        if (maxStatements >= 0) {
+            summary.append(" (max ").append(maxStatements).append(")");
+        }
+        repetitions.forEach((fingerprint, repetition) -> {
+            if (repetition.count >= repeatThreshold) {
+                summary.append("\n  ").append(repetition.count).append(" x ").append(fingerprint)
+                        .append("\n    at ").append(repetition.callSite);
+            }
+        });
+        return summary.toString();
+    }
+
+    boolean hasRepeatedStatements() {
+        for (Repetition repetition : repetitions.values()) {
+            if (repetition.count >= repeatThreshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        guard.end(this);
+    }
+
+    private static class Repetition {
+        private int count;
+        private String callSite;
+    }
+
+    private static final class CallSite {
+
+        private static final StackWalker WALKER = StackWalker.getInstance();
+        private static final String APPLICATION_PACKAGE = "study.querydsl.";
+
+        static String current() {
+            return WALKER.walk(frames -> frames
+                    .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                            && !frame.getClassName().startsWith(QueryScope.class.getName())
+                            && !frame.getClassName().equals(QueryCountGuard.class.getName())
+                            && !frame.getClassName().contains("$$"))
+                    .findFirst()
+                    .map(StackWalker.StackFrame::toString)
+                    .orElse("unknown"));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 리포지토리 메서드별 content/count 쿼리 시간, 반환 행 수, 엔티티 hydration 건수 meter
+ * <p>
+ * repository.query (phase=content|count), repository.query.rows, repository.query.hydrated 로 등록되며
+ * /actuator/metrics 에서 repository/method 태그로 조회할 수 있다.
+ */
+@Component
+public class RepositoryMetrics {
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, QueryMetrics> metrics = new ConcurrentHashMap<>();
+
+    public RepositoryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 생성 시점에 한 번 호출해 필드에 보관한다.
+     */
+    public QueryMetrics of(String repository, String method) {
+        return metrics.computeIfAbsent(repository + "." + method, key -> new QueryMetrics(
+                timer(repository, method, "content"),
+                timer(repository, method, "count"),
+                DistributionSummary.builder("repository.query.rows")
+                        .description("rows returned by the content query")
+                        .tag("repository", repository)
+                        .tag("method", method)
+                        .publishPercentileHistogram()
+                        .register(registry),
+                DistributionSummary.builder("repository.query.hydrated")
+                        .description("entities materialized by the content query")
+                        .tag("repository", repository)
+                        .tag("method", method)
+                        .register(registry)));
+    }
+
+    private Timer timer(String repository, String method, String phase) {
+        return Timer.builder("repository.query")
+                .description("repository query execution time")
+                .tag("repository", repository)
+                .tag("method", method)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
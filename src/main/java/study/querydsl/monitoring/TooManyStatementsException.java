@@ -0,0 +1,8 @@
+package study.querydsl.monitoring;
+
+public class TooManyStatementsException extends IllegalStateException {
+
+    public TooManyStatementsException(String message) {
+        super(message);
+    }
+}
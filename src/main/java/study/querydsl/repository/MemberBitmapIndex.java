@@ -0,0 +1,239 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.event.MemberSnapshot;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 팀별, 나이별 member id 비트맵(Roaring)
+ * <p>
+ * teamName/ageGoe/ageLoe/memberIds 조건은 비트맵 AND/OR 로 바꿔 count 쿼리 없이 건수와 후보 id 를 구한다.
+ * teamName 은 query cache 에 올라간 팀 조회로 team id 로 바꾼다.
+ * 건수는 조건의 비트맵끼리 교집합 크기만 세므로 전체 비트맵을 복사하지 않고, 조회끼리는 읽기 락으로 함께 실행된다.
+ * <p>
+ * 다시 만들 때는 (id, team id, age) 를 한 번 읽어 락 밖에서 새 비트맵을 만든다.
+ * 인덱스가 최신이 아니거나, SQL 로만 판단할 수 있는 username 조건이 있거나, 쓰기 트랜잭션 안이면
+ * empty 를 돌려주므로 호출하는 쪽은 기존 쿼리로 처리한다.
+ */
+@Component
+public class MemberBitmapIndex extends RebuildableMemberIndex<MemberBitmapIndex.Bitmaps> {
+
+    private final TeamRepository teamRepository;
+
+    private Bitmaps bitmaps = new Bitmaps();
+
+    public MemberBitmapIndex(EntityManagerFactory entityManagerFactory, TeamRepository teamRepository) {
+        super(entityManagerFactory, "member-bitmap-index");
+        this.teamRepository = teamRepository;
+    }
+
+    /**
+     * 조건에 맞는 회원 수
+     */
+    public OptionalLong count(MemberSearchCondition condition) {
+        return evaluate(condition, MemberBitmapIndex::andCardinality)
+                .map(OptionalLong::of)
+                .orElseGet(OptionalLong::empty);
+    }
+
+    /**
+     * 조건에 맞는 member id. 돌려준 비트맵은 호출한 쪽 소유다.
+     */
+    public Optional<RoaringBitmap> candidates(MemberSearchCondition condition) {
+        return evaluate(condition, operands -> operands.size() == 1
+                ? operands.get(0).clone()
+                : FastAggregation.and(operands.iterator()));
+    }
+
+    /**
+     * 조건을 교집합할 비트맵 목록으로 바꿔 combine 에 넘긴다. 목록의 비트맵은 인덱스 소유이므로 combine 안에서만 읽는다.
+     */
+    private <R> Optional<R> evaluate(MemberSearchCondition condition, Function<List<RoaringBitmap>, R> combine) {
+        if (StringUtils.hasText(condition.getUsername()) || writeTransaction() || !isCurrent()) {
+            return Optional.empty();
+        }
+
+        List<Long> teamIds = null;
+        if (StringUtils.hasText(condition.getTeamName())) {
+            teamIds = new ArrayList<>();
+            for (Team findTeam : teamRepository.findByName(condition.getTeamName())) {
+                teamIds.add(findTeam.getId());
+            }
+        }
+
+        Lock lock = readLock();
+        lock.lock();
+        try {
+            //팀을 찾는 사이에 stale 이 됐을 수 있다.
+            if (!isCurrent()) {
+                return Optional.empty();
+            }
+            return Optional.of(combine.apply(bitmaps.operands(teamIds, condition)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long andCardinality(List<RoaringBitmap> operands) {
+        int last = operands.size() - 1;
+        if (last == 0) {
+            return operands.get(0).getLongCardinality();
+        }
+        RoaringBitmap others = last == 1 ? operands.get(0) : FastAggregation.and(operands.subList(0, last).iterator());
+        return RoaringBitmap.andCardinality(others, operands.get(last));
+    }
+
+    private static RoaringBitmap bitmapOf(List<Long> memberIds) {
+        RoaringBitmap ids = new RoaringBitmap();
+        for (Long id : memberIds) {
+            if (fits(id)) {
+                ids.add(id.intValue());
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    protected Bitmaps load(EntityManager em) {
+        List<Tuple> rows = new JPAQueryFactory(em)
+                .select(member.id, member.team.id, member.age)
+                .from(member)
+                .fetch();
+        Bitmaps loaded = new Bitmaps();
+        for (Tuple row : rows) {
+            loaded.indexable &= loaded.add(row.get(member.id), row.get(member.team.id), row.get(member.age));
+        }
+        loaded.runOptimize();
+        return loaded;
+    }
+
+    @Override
+    protected boolean replace(Bitmaps loaded) {
+        bitmaps = loaded;
+        return loaded.indexable;
+    }
+
+    @Override
+    protected boolean apply(MemberSnapshot before, MemberSnapshot after) {
+        if (before != null) {
+            bitmaps.remove(before);
+        }
+        return after == null || bitmaps.add(after.getId(), after.getTeamId(), after.getAge());
+    }
+
+    //Roaring 은 32bit 정수 집합이다. id 는 시퀀스로 1 부터 증가하므로 int 범위를 넘기 전까지는 그대로 쓴다.
+    private static boolean fits(Long id) {
+        return id != null && id >= 0 && id <= Integer.MAX_VALUE;
+    }
+
+    static class Bitmaps {
+        private final RoaringBitmap all = new RoaringBitmap();
+        private final Map<Long, RoaringBitmap> byTeam = new HashMap<>();
+        private final TreeMap<Integer, RoaringBitmap> byAge = new TreeMap<>();
+        private boolean indexable = true;
+
+        /**
+         * 조건마다 하나씩, 교집합하면 답이 되는 비트맵. 팀이나 나이 조건이 없으면 전체 비트맵으로 시작한다.
+         */
+        List<RoaringBitmap> operands(List<Long> teamIds, MemberSearchCondition condition) {
+            List<RoaringBitmap> operands = new ArrayList<>();
+            if (teamIds != null) {
+                List<RoaringBitmap> teams = new ArrayList<>();
+                for (Long teamId : teamIds) {
+                    RoaringBitmap ids = byTeam.get(teamId);
+                    if (ids != null) {
+                        teams.add(ids);
+                    }
+                }
+                operands.add(union(teams));
+            }
+            if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+                operands.add(union(ages(condition.getAgeGoe(), condition.getAgeLoe()).values()));
+            }
+            if (operands.isEmpty()) {
+                operands.add(all);
+            }
+            if (condition.getMemberIds() != null) {
+                operands.add(bitmapOf(condition.getMemberIds()));
+            }
+            return operands;
+        }
+
+        private static RoaringBitmap union(Collection<RoaringBitmap> bitmaps) {
+            return bitmaps.size() == 1 ? bitmaps.iterator().next() : FastAggregation.or(bitmaps.iterator());
+        }
+
+        private NavigableMap<Integer, RoaringBitmap> ages(Integer ageGoe, Integer ageLoe) {
+            if (ageGoe != null && ageLoe != null) {
+                return ageGoe <= ageLoe ? byAge.subMap(ageGoe, true, ageLoe, true) : new TreeMap<>();
+            }
+            return ageGoe != null ? byAge.tailMap(ageGoe, true) : byAge.headMap(ageLoe, true);
+        }
+
+        /**
+         * @return int 로 표현할 수 없는 id 면 false. 이때는 인덱스를 쓰지 않는다.
+         */
+        boolean add(Long id, Long teamId, int age) {
+            if (!fits(id)) {
+                return false;
+            }
+            int key = id.intValue();
+            all.add(key);
+            if (teamId != null) {
+                byTeam.computeIfAbsent(teamId, k -> new RoaringBitmap()).add(key);
+            }
+            byAge.computeIfAbsent(age, k -> new RoaringBitmap()).add(key);
+            return true;
+        }
+
+        void remove(MemberSnapshot snapshot) {
+            if (!fits(snapshot.getId())) {
+                return;
+            }
+            int key = snapshot.getId().intValue();
+            all.remove(key);
+            if (snapshot.getTeamId() != null) {
+                removeFrom(byTeam, snapshot.getTeamId(), key);
+            }
+            removeFrom(byAge, snapshot.getAge(), key);
+        }
+
+        private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K bucket, int key) {
+            RoaringBitmap ids = bitmaps.get(bucket);
+            if (ids != null) {
+                ids.remove(key);
+                if (ids.isEmpty()) {
+                    bitmaps.remove(bucket);
+                }
+            }
+        }
+
+        void runOptimize() {
+            all.runOptimize();
+            byTeam.values().forEach(RoaringBitmap::runOptimize);
+            byAge.values().forEach(RoaringBitmap::runOptimize);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkLoadResult;
+import study.querydsl.repository.support.MemberGenerator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 대량의 팀/회원을 JPA 로 적재한다.
+ * <p>
+ * 식별자는 pooled sequence(allocationSize 50)에서 받아 sequence 조회가 50 건에 한 번만 일어나고,
+ * INSERT 는 hibernate.jdbc.batch_size 단위 JDBC batch 로 묶인다.
+ * batchSize 건마다 flush/clear 해서 영속성 컨텍스트 크기를 일정하게 유지하고, commitInterval 건마다 커밋한다.
+ * parallelism 이 1 보다 크면 commitInterval 단위 청크를 여러 스레드에서 각자의 트랜잭션으로 적재한다.
+ * <p>
+ * 청크 단위로 커밋하므로 중간에 실패하면 이미 커밋된 청크는 남는다.
+ */
+@Slf4j
+@Component
+public class MemberBulkLoader {
+
+    private final EntityManager em;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int commitInterval;
+    private final int defaultParallelism;
+
+    public MemberBulkLoader(EntityManager em, EntityManagerFactory entityManagerFactory,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${querydsl.bulk.batch-size:50}") int batchSize,
+                            @Value("${querydsl.bulk.commit-interval:10000}") int commitInterval,
+                            @Value("${querydsl.bulk.parallelism:1}") int defaultParallelism) {
+        this.em = em;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+        this.defaultParallelism = defaultParallelism;
+    }
+
+    public BulkLoadResult load(int teamCount, long memberCount, MemberGenerator generator) {
+        return load(teamCount, memberCount, generator, defaultParallelism);
+    }
+
+    public BulkLoadResult load(int teamCount, long memberCount, MemberGenerator generator, int parallelism) {
+        Assert.isTrue(teamCount >= 0, "teamCount must not be negative");
+        Assert.isTrue(memberCount >= 0, "memberCount must not be negative");
+        Assert.isTrue(parallelism > 0, "parallelism must be positive");
+
+        long start = System.currentTimeMillis();
+        List<Long> teamIds = loadTeams(teamCount, generator);
+
+        List<long[]> chunks = new ArrayList<>();
+        for (long from = 0; from < memberCount; from += commitInterval) {
+            chunks.add(new long[]{from, Math.min(from + commitInterval, memberCount)});
+        }
+        if (parallelism == 1 || chunks.size() <= 1) {
+            for (long[] chunk : chunks) {
+                loadMembers(chunk[0], chunk[1], teamIds, generator);
+            }
+        } else {
+            loadMembersInParallel(chunks, teamIds, generator, parallelism);
+        }
+
+        // 새 회원은 Team.members 컬렉션에 추가하지 않고 FK 만 채워 넣으므로 캐시된 컬렉션을 비운다.
+        entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class)
+                .evictCollectionData(Team.class.getName() + ".members");
+
+        BulkLoadResult result = new BulkLoadResult(teamIds, memberCount, System.currentTimeMillis() - start);
+        log.info("bulk loaded {} teams and {} members in {}ms", teamCount, memberCount, result.getElapsedMillis());
+        return result;
+    }
+
+    private List<Long> loadTeams(int teamCount, MemberGenerator generator) {
+        return transactionTemplate.execute(status -> {
+            Session session = prepareSession();
+            List<Long> ids = new ArrayList<>(teamCount);
+            for (int i = 0; i < teamCount; i++) {
+                Team team = new Team(generator.teamName(i));
+                em.persist(team);
+                ids.add(team.getId());
+                if ((i + 1) % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            return ids;
+        });
+    }
+
+    private void loadMembers(long from, long to, List<Long> teamIds, MemberGenerator generator) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Session session = prepareSession();
+            for (long i = from; i < to; i++) {
+                Member member = generator.create(i);
+                if (!teamIds.isEmpty()) {
+                    //clear 이후에도 FK 만 필요하므로 조회 없이 프록시를 쓴다.
+                    member.setTeam(em.getReference(Team.class, teamIds.get(generator.teamOf(i, teamIds.size()))));
+                }
+                em.persist(member);
+                if ((i - from + 1) % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+        });
+        log.debug("loaded members [{}, {})", from, to);
+    }
+
+    private void loadMembersInParallel(List<long[]> chunks, List<Long> teamIds, MemberGenerator generator, int parallelism) {
+        AtomicInteger sequence = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks.size()), runnable -> {
+            Thread thread = new Thread(runnable, "bulk-load-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(chunks.size());
+            for (long[] chunk : chunks) {
+                futures.add(executor.submit(() -> loadMembers(chunk[0], chunk[1], teamIds, generator)));
+            }
+            for (Future<?> future : futures) {
+                await(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Session prepareSession() {
+        Session session = em.unwrap(Session.class);
+        session.setJdbcBatchSize(batchSize);
+        //적재한 엔티티를 2차 캐시에 올리지 않는다.
+        session.setCacheMode(CacheMode.IGNORE);
+        return session;
+    }
+
+    private void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while bulk loading members", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
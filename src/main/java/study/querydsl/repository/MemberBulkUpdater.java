@@ -0,0 +1,243 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkProgress;
+import study.querydsl.repository.support.BulkUpdateResult;
+import study.querydsl.repository.support.MemberBulkUpdate;
+import study.querydsl.repository.support.MemberSearchParams;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 조건에 맞는 회원을 id 순서로 chunkSize 개씩 나눠 update/delete 한다.
+ * <p>
+ * 청크마다 새 트랜잭션에서 직전 청크의 마지막 id 다음부터 조건에 맞는 id 를 select ... for update 로 잠그며 조회한 뒤
+ * 그 id 들만 변경하고 커밋하므로 테이블 전체를 한 트랜잭션으로 잠그지 않는다. 잠근 행은 커밋까지 다른 트랜잭션이 바꿀 수 없으므로
+ * 조회한 뒤 조건에서 벗어난 행을 변경하는 일은 없다. id 가 띄엄띄엄해도 청크 수는 대상 회원 수 / chunkSize 를 넘지 않는다.
+ * 대상이 있던 청크 사이에는 chunkPause 만큼 쉬어 다른 트랜잭션이 끼어들 틈을 준다. 중간에 실패하면 이미 커밋된 청크는 남는다.
+ * <p>
+ * JPQL 벌크 연산은 Member 2차 캐시 영역 전체를 비우므로 native SQL 로 실행하고,
+ * 커밋 후 변경된 회원(삭제/팀 변경 시 관련 Team.members 컬렉션 포함)만 2차 캐시와 호출자의 영속성 컨텍스트에서 내보낸다.
+ * 호출자의 영속성 컨텍스트에서 내보낸 엔티티에 flush 되지 않은 변경이 있었다면 버려진다.
+ * 호출자 트랜잭션이 같은 행에 이미 쓰기를 했다면 청크 트랜잭션이 그 락을 기다리게 되므로 쓰기 트랜잭션 밖에서 호출한다.
+ */
+@Slf4j
+@Component
+public class MemberBulkUpdater {
+
+    private static final String MEMBER_TEAM_ROLE = Team.class.getName() + ".members";
+    //어떤 엔티티에도 매핑되지 않은 query space 를 지정해 Hibernate 가 2차 캐시 영역 전체를 비우지 않게 한다.
+    private static final String CHUNK_QUERY_SPACE = "member_bulk_chunk";
+    private static final String[] MEMBER_QUERY_SPACES = {"member"};
+
+    private final EntityManager em;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final Duration chunkPause;
+
+    public MemberBulkUpdater(EntityManager em, EntityManagerFactory entityManagerFactory,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${querydsl.bulk.chunk-size:1000}") int chunkSize,
+                             @Value("${querydsl.bulk.chunk-pause:10ms}") Duration chunkPause) {
+        this.em = em;
+        this.entityManagerFactory = entityManagerFactory;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = chunkSize;
+        this.chunkPause = chunkPause;
+    }
+
+    public BulkUpdateResult update(MemberSearchCondition condition, MemberBulkUpdate update,
+                                   Consumer<BulkProgress> progress) {
+        String sql = "update member set " + update.setClause() + " where member_id in (:ids)";
+        Set<Long> extraTeamIds = new HashSet<>();
+        if (update.isTeamChanged() && update.getTeamId() != null) {
+            extraTeamIds.add(update.getTeamId());
+        }
+        return execute(condition, sql, update::bind, update.isTeamChanged(), extraTeamIds, progress);
+    }
+
+    public BulkUpdateResult delete(MemberSearchCondition condition, Consumer<BulkProgress> progress) {
+        return execute(condition, "delete from member where member_id in (:ids)", query -> { }, true, Set.of(), progress);
+    }
+
+    private BulkUpdateResult execute(MemberSearchCondition condition, String sql, Consumer<NativeQuery<?>> binder,
+                                     boolean membershipChanged, Set<Long> extraTeamIds, Consumer<BulkProgress> progress) {
+        long start = System.currentTimeMillis();
+        SessionImplementor callerSession = callerSession();
+
+        Tuple range = chunkTransaction.execute(status -> filter(new JPAQueryFactory(em)
+                .select(member.id.min(), member.id.max())
+                .from(member), condition)
+                .fetchOne());
+        Long minId = range != null ? range.get(member.id.min()) : null;
+        Long maxId = range != null ? range.get(member.id.max()) : null;
+        if (minId == null || maxId == null) {
+            return new BulkUpdateResult(0, 0, System.currentTimeMillis() - start);
+        }
+
+        int chunks = 0;
+        long affected = 0;
+        long lastId = minId - 1;
+        while (true) {
+            List<Tuple> targets = executeChunk(condition, lastId, sql, binder);
+            if (targets.isEmpty()) {
+                break;
+            }
+
+            List<Long> memberIds = new ArrayList<>(targets.size());
+            Set<Long> teamIds = new HashSet<>(extraTeamIds);
+            for (Tuple target : targets) {
+                memberIds.add(target.get(member.id));
+                Long teamId = target.get(member.team.id);
+                if (teamId != null) {
+                    teamIds.add(teamId);
+                }
+            }
+            evict(callerSession, memberIds, membershipChanged ? teamIds : Set.of());
+
+            long from = lastId + 1;
+            lastId = memberIds.get(memberIds.size() - 1);
+            chunks++;
+            affected += targets.size();
+            progress.accept(new BulkProgress(chunks, minId, Math.min(lastId, maxId), maxId, affected));
+            log.debug("bulk chunk [{}, {}] affected {} members", from, lastId, targets.size());
+
+            if (targets.size() < chunkSize) {
+                break;
+            }
+            pause();
+        }
+
+        BulkUpdateResult result = new BulkUpdateResult(chunks, affected, System.currentTimeMillis() - start);
+        log.info("bulk changed {} members in {} chunks, {}ms", affected, chunks, result.getElapsedMillis());
+        return result;
+    }
+
+    private List<Tuple> executeChunk(MemberSearchCondition condition, long afterId,
+                                     String sql, Consumer<NativeQuery<?>> binder) {
+        return chunkTransaction.execute(status -> {
+            List<Tuple> targets = filter(new JPAQueryFactory(em)
+                    .select(member.id, member.team.id)
+                    .from(member), condition)
+                    .where(member.id.gt(afterId))
+                    .orderBy(member.id.asc())
+                    .limit(chunkSize)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .fetch();
+            if (targets.isEmpty()) {
+                return targets;
+            }
+
+            List<Long> ids = new ArrayList<>(targets.size());
+            for (Tuple target : targets) {
+                ids.add(target.get(member.id));
+            }
+            SessionImplementor session = em.unwrap(SessionImplementor.class);
+            NativeQuery<?> query = em.unwrap(Session.class).createNativeQuery(sql);
+            query.addSynchronizedQuerySpace(CHUNK_QUERY_SPACE);
+            query.setParameterList("ids", ids);
+            binder.accept(query);
+            query.executeUpdate();
+
+            //member 를 조회하는 query cache 결과는 직접 무효화한다. Hibernate 벌크 연산과 같이 커밋 전후 두 번 처리한다.
+            TimestampsCache timestampsCache = session.getFactory().getCache().getTimestampsCache();
+            timestampsCache.preInvalidate(MEMBER_QUERY_SPACES, session);
+            session.getActionQueue().registerProcess((success, completedSession) ->
+                    timestampsCache.invalidate(MEMBER_QUERY_SPACES, completedSession));
+            return targets;
+        });
+    }
+
+    private <T> JPAQuery<T> filter(JPAQuery<T> query, MemberSearchCondition condition) {
+        if (StringUtils.hasText(condition.getTeamName())) {
+            query.join(member.team, team).where(team.name.eq(condition.getTeamName()));
+        }
+        return query.where(
+                MemberSearchParams.usernameMatches(condition),
+                condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null,
+                condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null);
+    }
+
+    /**
+     * 호출 시점에 스레드에 묶여 있는 영속성 컨텍스트(호출자 트랜잭션 또는 open-in-view).
+     * 청크 트랜잭션은 REQUIRES_NEW 라서 em 으로는 접근할 수 없으므로 미리 잡아 둔다.
+     */
+    private SessionImplementor callerSession() {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+        return holder != null ? holder.getEntityManager().unwrap(SessionImplementor.class) : null;
+    }
+
+    private void evict(SessionImplementor callerSession, List<Long> memberIds, Set<Long> teamIds) {
+        javax.persistence.Cache cache = entityManagerFactory.getCache();
+        org.hibernate.Cache hibernateCache = cache.unwrap(org.hibernate.Cache.class);
+        for (Long memberId : memberIds) {
+            cache.evict(Member.class, memberId);
+        }
+        for (Long teamId : teamIds) {
+            hibernateCache.evictCollectionData(MEMBER_TEAM_ROLE, teamId);
+        }
+
+        if (callerSession == null || !callerSession.isOpen()) {
+            return;
+        }
+        detach(callerSession, Member.class, memberIds);
+        //Team 을 내보내면 영속성 컨텍스트에 올라온 members 컬렉션도 같이 내보내진다.
+        detach(callerSession, Team.class, teamIds);
+    }
+
+    private void detach(SessionImplementor session, Class<?> entityClass, Iterable<Long> ids) {
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entityClass);
+        PersistenceContext persistenceContext = session.getPersistenceContextInternal();
+        for (Long id : ids) {
+            Object entity = persistenceContext.getEntity(session.generateEntityKey(id, persister));
+            if (entity != null) {
+                session.evict(entity);
+            }
+        }
+    }
+
+    private void pause() {
+        if (chunkPause.isZero() || chunkPause.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(chunkPause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while bulk changing members", e);
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.ParamExpression;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.Param;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
@@ -12,23 +18,57 @@ import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.entity.Team;
+import study.querydsl.monitoring.QueryMetrics;
+import study.querydsl.monitoring.RepositoryMetrics;
+import study.querydsl.repository.support.CompiledQuery;
+import study.querydsl.repository.support.CompiledQueryCache;
+import study.querydsl.repository.support.MemberSearchResultCache;
+import study.querydsl.repository.support.MemberSearchParams;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static java.util.stream.Collectors.toList;
 import static study.querydsl.entity.QMember.*;
 import static study.querydsl.entity.QTeam.*;
 
 @Repository
 public class MemberJpaRepository {
 
+    @SuppressWarnings("rawtypes")
+    private static final Param<Collection> TEAM_IDS = new Param<>(Collection.class, "teamIds");
+    private static final NumberPath<Long> MEMBER_TEAM_ID = member.team.id;
+
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-
-    public MemberJpaRepository(EntityManager em) {
+    private final TeamRepository teamRepository;
+    private final CompiledQueryCache compiledQueryCache;
+    private final MemberSearchResultCache resultCache;
+    private final MemberUsernameIndex usernameIndex;
+
+    private final QueryMetrics searchMetrics;
+    private final QueryMetrics searchByBuilderMetrics;
+    private final QueryMetrics searchMemberMetrics;
+
+    public MemberJpaRepository(EntityManager em, TeamRepository teamRepository, CompiledQueryCache compiledQueryCache,
+                               MemberSearchResultCache resultCache, MemberUsernameIndex usernameIndex,
+                               RepositoryMetrics repositoryMetrics) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.teamRepository = teamRepository;
+        this.compiledQueryCache = compiledQueryCache;
+        this.resultCache = resultCache;
+        this.usernameIndex = usernameIndex;
+
+        this.searchMetrics = repositoryMetrics.of("MemberJpaRepository", "search");
+        this.searchByBuilderMetrics = repositoryMetrics.of("MemberJpaRepository", "searchByBuilder");
+        this.searchMemberMetrics = repositoryMetrics.of("MemberJpaRepository", "searchMember");
     }
 
     public void save(Member member){
@@ -60,6 +100,7 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
 
         BooleanBuilder builder=new BooleanBuilder();
@@ -77,7 +118,8 @@ public class MemberJpaRepository {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
 
-        return queryFactory.select(new QMemberTeamDto(
+        long start = System.nanoTime();
+        return searchByBuilderMetrics.recordContent(start, queryFactory.select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
@@ -86,34 +128,83 @@ public class MemberJpaRepository {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(builder)
-                .fetch();
+                .fetch());
     }
 
+    /**
+     * team 은 거의 바뀌지 않으므로 join 하지 않고 2차 캐시에서 꺼낸다.
+     * teamName 조건은 query cache 에 올라간 팀 조회 결과로 team_id 조건으로 바꾼다.
+     * 같은 조건의 결과는 데이터가 바뀌기 전까지 {@link MemberSearchResultCache} 에서 꺼낸다.
+     * username PREFIX/CONTAINS 조건은 {@link MemberUsernameIndex} 에서 찾은 id 조건으로 바꾼다.
+     */
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition){
+        return resultCache.search("MemberJpaRepository.search", condition, () -> fetchSearch(condition));
+    }
 
-        return queryFactory.select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+    private List<MemberTeamDto> fetchSearch(MemberSearchCondition searchCondition) {
+        long start = System.nanoTime();
+        MemberSearchCondition condition = usernameIndex.resolve(searchCondition);
+        List<Long> teamIds = null;
+        if (StringUtils.hasText(condition.getTeamName())) {
+            teamIds = teamRepository.findByName(condition.getTeamName()).stream()
+                    .map(Team::getId)
+                    .collect(toList());
+            if (teamIds.isEmpty()) {
+                return searchMetrics.recordContent(start, Collections.emptyList());
+            }
+        }
 
-                .fetch();
+        int shape = MemberSearchParams.shape(condition);
+        Map<ParamExpression<?>, Object> params = MemberSearchParams.bind(condition);
+        params.remove(MemberSearchParams.TEAM_NAME);
+        if (teamIds != null) {
+            params.put(TEAM_IDS, teamIds);
+        }
+
+        List<Tuple> rows = searchQuery(shape).fetch(em, params);
+
+        List<MemberTeamDto> results = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Long memberTeamId = row.get(MEMBER_TEAM_ID);
+            results.add(new MemberTeamDto(
+                    row.get(member.id),
+                    row.get(member.username),
+                    row.get(member.age),
+                    memberTeamId,
+                    teamName(memberTeamId)));
+        }
+        return searchMetrics.recordContent(start, results);
     }
 
+    private CompiledQuery<Tuple> searchQuery(int shape) {
+        return compiledQueryCache.get("MemberJpaRepository.search:" + shape, em, () ->
+                queryFactory.select(member.id, member.username, member.age, MEMBER_TEAM_ID)
+                        .from(member)
+                        .where(MemberSearchParams.usernameMatches(shape),
+                                MemberSearchParams.hasTeamName(shape)
+                                        ? Expressions.booleanTemplate("{0} in {1}", MEMBER_TEAM_ID, TEAM_IDS) : null,
+                                MemberSearchParams.ageGoe(shape),
+                                MemberSearchParams.ageLoe(shape)));
+    }
+
+    private String teamName(Long teamId) {
+        if (teamId == null) {
+            return null;
+        }
+        Team findTeam = em.find(Team.class, teamId);
+        return findTeam != null ? findTeam.getName() : null;
+    }
+
+    @Transactional(readOnly = true)
     public List<Member> searchMember(MemberSearchCondition condition){
 
-        return queryFactory.selectFrom(member)
+        long start = System.nanoTime();
+        return searchMemberMetrics.recordContent(start, queryFactory.selectFrom(member)
                 .leftJoin(member.team, team)
                 .where(ageBetween(condition.getAgeLoe(),condition.getAgeGoe()))
 
-                .fetch();
+                .fetch());
     }
 
     private BooleanExpression ageBetween(int ageLoe,int ageGoe){
@@ -1,5 +1,6 @@
 package study.querydsl.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import study.querydsl.entity.Member;
@@ -9,4 +10,10 @@ import java.util.List;
 public interface MemberRepository extends JpaRepository<Member,Long>,MemberRepositoryCustom, QuerydslPredicateExecutor<Member> {
     //select m from Member m where m.username=:username
     List<Member> findByUsername(String username);
+
+    @EntityGraph("Member.team")
+    List<Member> findWithTeamByUsername(String username);
+
+    @EntityGraph(attributePaths = "team")
+    List<Member> findWithTeamByAgeBetween(int ageGoe, int ageLoe);
 }
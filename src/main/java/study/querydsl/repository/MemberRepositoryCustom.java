@@ -2,14 +2,33 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.BulkProgress;
+import study.querydsl.repository.support.BulkUpdateResult;
+import study.querydsl.repository.support.EstimatedPage;
+import study.querydsl.repository.support.MemberBulkUpdate;
+import study.querydsl.repository.support.MemberCursor;
+import study.querydsl.repository.support.MemberFetchPlan;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
+    List<Member> searchMembers(MemberSearchCondition condition, MemberFetchPlan fetchPlan);
+    List<Member> findAllByIdInOrder(List<Long> ids);
+    long searchStream(MemberSearchCondition condition, Consumer<MemberTeamDto> consumer);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition,Pageable pageable);
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+    EstimatedPage<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable, boolean exact);
+    Page<MemberTeamDto> searchPageConcurrent(MemberSearchCondition condition, Pageable pageable);
+    MemberCursorPage searchByCursor(MemberSearchCondition condition, MemberCursor.Sort sort, String cursor, int size);
+    BulkUpdateResult bulkUpdate(MemberSearchCondition condition, MemberBulkUpdate update, Consumer<BulkProgress> progress);
+    BulkUpdateResult bulkDelete(MemberSearchCondition condition, Consumer<BulkProgress> progress);
 
 }
@@ -1,121 +1,530 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.monitoring.QueryMetrics;
+import study.querydsl.monitoring.RepositoryMetrics;
+import study.querydsl.repository.support.BulkProgress;
+import study.querydsl.repository.support.BulkUpdateResult;
+import study.querydsl.repository.support.CompiledQuery;
+import study.querydsl.repository.support.CompiledQueryCache;
+import study.querydsl.repository.support.ConcurrentPageExecutor;
+import study.querydsl.repository.support.EstimatedPage;
+import study.querydsl.repository.support.InListPadding;
+import study.querydsl.repository.support.InvalidSortException;
+import study.querydsl.repository.support.MemberCountCache;
+import study.querydsl.repository.support.MemberSearchResultCache;
+import study.querydsl.repository.support.MemberCountEstimator;
+import study.querydsl.repository.support.MemberBulkUpdate;
+import study.querydsl.repository.support.MemberCursor;
+import study.querydsl.repository.support.MemberFetchPlan;
+import study.querydsl.repository.support.MemberSearchParams;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl  implements MemberRepositoryCustom{
+
+    //searchSlice 가 정렬할 수 있는 MemberTeamDto 속성. 요청 값으로 JPQL 을 만들지 않도록 경로를 정해 둔다.
+    private static final Map<String, ComparableExpressionBase<?>> SLICE_SORT_PATHS = Map.of(
+            "memberId", member.id,
+            "username", member.username,
+            "age", member.age,
+            "teamName", team.name);
+
     private final EntityManager entityManager;
     private final JPAQueryFactory queryFactory;
+    private final ConcurrentPageExecutor concurrentPageExecutor;
+    private final MemberCountCache countCache;
+    private final MemberCountEstimator countEstimator;
+    private final MemberSearchResultCache resultCache;
+    private final MemberBulkUpdater bulkUpdater;
+    private final CompiledQueryCache compiledQueryCache;
+    private final MemberUsernameIndex usernameIndex;
+    private final MemberBitmapIndex bitmapIndex;
+    private final int streamFetchSize;
+    private final int lookupChunkSize;
+
+    private final QueryMetrics searchMetrics;
+    private final QueryMetrics searchMembersMetrics;
+    private final QueryMetrics findAllByIdInOrderMetrics;
+    private final QueryMetrics searchStreamMetrics;
+    private final QueryMetrics searchPageSimpleMetrics;
+    private final QueryMetrics searchPageComplexMetrics;
+    private final QueryMetrics searchSliceMetrics;
+    private final QueryMetrics searchPageEstimatedMetrics;
+    private final QueryMetrics searchPageConcurrentMetrics;
+    private final QueryMetrics searchByCursorMetrics;
 
-    public MemberRepositoryImpl(EntityManager entityManager) {
+    public MemberRepositoryImpl(EntityManager entityManager, ConcurrentPageExecutor concurrentPageExecutor,
+                                MemberCountCache countCache, MemberCountEstimator countEstimator,
+                                MemberSearchResultCache resultCache, MemberBulkUpdater bulkUpdater,
+                                CompiledQueryCache compiledQueryCache, MemberUsernameIndex usernameIndex,
+                                MemberBitmapIndex bitmapIndex, RepositoryMetrics repositoryMetrics,
+                                @Value("${querydsl.export.fetch-size:500}") int streamFetchSize,
+                                @Value("${querydsl.member-lookup.chunk-size:512}") int lookupChunkSize) {
         this.entityManager = entityManager;
         this.queryFactory = new JPAQueryFactory(entityManager);
+        this.concurrentPageExecutor = concurrentPageExecutor;
+        this.countCache = countCache;
+        this.countEstimator = countEstimator;
+        this.resultCache = resultCache;
+        this.bulkUpdater = bulkUpdater;
+        this.compiledQueryCache = compiledQueryCache;
+        this.usernameIndex = usernameIndex;
+        this.bitmapIndex = bitmapIndex;
+        this.streamFetchSize = streamFetchSize;
+        this.lookupChunkSize = InListPadding.chunkSize(lookupChunkSize);
+
+        this.searchMetrics = repositoryMetrics.of("MemberRepository", "search");
+        this.searchMembersMetrics = repositoryMetrics.of("MemberRepository", "searchMembers");
+        this.findAllByIdInOrderMetrics = repositoryMetrics.of("MemberRepository", "findAllByIdInOrder");
+        this.searchStreamMetrics = repositoryMetrics.of("MemberRepository", "searchStream");
+        this.searchPageSimpleMetrics = repositoryMetrics.of("MemberRepository", "searchPageSimple");
+        this.searchPageComplexMetrics = repositoryMetrics.of("MemberRepository", "searchPageComplex");
+        this.searchSliceMetrics = repositoryMetrics.of("MemberRepository", "searchSlice");
+        this.searchPageEstimatedMetrics = repositoryMetrics.of("MemberRepository", "searchPageEstimated");
+        this.searchPageConcurrentMetrics = repositoryMetrics.of("MemberRepository", "searchPageConcurrent");
+        this.searchByCursorMetrics = repositoryMetrics.of("MemberRepository", "searchByCursor");
     }
 
     @Override
-    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    public List<MemberTeamDto> search(MemberSearchCondition searchCondition) {
+        MemberSearchCondition condition = usernameIndex.resolve(searchCondition);
+        long start = System.nanoTime();
+        if (bitmapIndex.count(condition).orElse(-1) == 0) {
+            return searchMetrics.recordContent(start, Collections.emptyList());
+        }
+        return searchMetrics.recordContent(start, contentQuery(MemberSearchParams.shape(condition))
+                .fetch(entityManager, MemberSearchParams.bind(condition)));
+    }
 
-        return queryFactory.select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
+    /**
+     * 엔티티 조회. WITH_TEAM 이면 team 을 fetch join 하고, MEMBER_ONLY 이면 team 은 batch fetch 로 나중에 읽는다.
+     */
+    @Override
+    public List<Member> searchMembers(MemberSearchCondition searchCondition, MemberFetchPlan fetchPlan) {
+        MemberSearchCondition condition = usernameIndex.resolve(searchCondition);
+        boolean hasTeamName = StringUtils.hasText(condition.getTeamName());
+        JPAQuery<Member> query = queryFactory.selectFrom(member);
+        if (fetchPlan == MemberFetchPlan.WITH_TEAM) {
+            joinTeam(query, hasTeamName).fetchJoin();
+        } else {
+            joinTeamIfFiltered(query, hasTeamName);
+        }
+
+        long start = System.nanoTime();
+        return searchMembersMetrics.recordContent(start, query
+                .where(MemberSearchParams.usernameMatches(condition),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
+                .fetch());
+    }
 
-                .fetch();
+    /**
+     * id 목록으로 회원을 읽어 요청 순서대로 돌려준다. 없는 id 는 건너뛰고, 중복된 id 는 같은 엔티티를 다시 넣는다.
+     * 영속성 컨텍스트나 2차 캐시에 있는 회원은 find 로 꺼내고, 나머지만 Hibernate multi-load 로
+     * lookup chunk-size 단위의 in 쿼리로 읽는다. multi-load 는 2차 캐시를 보지 않으므로 미리 걸러 낸다.
+     * multi-load 의 SQL 은 id 개수마다 만들어지므로 목록을 {@link InListPadding} 으로 2의 거듭제곱 길이로 채운다.
+     * 영속성 컨텍스트에 있는 id 를 채운 뒤에 빼면 길이가 다시 어긋나므로 채우기 전에 뺀다.
+     */
+    @Override
+    public List<Member> findAllByIdInOrder(List<Long> ids) {
+        javax.persistence.Cache cache = entityManager.getEntityManagerFactory().getCache();
+        Session session = entityManager.unwrap(Session.class);
+        //영속성 컨텍스트에 있는 회원 id. 내부 SPI 대신 세션 통계의 엔티티 키로 확인한다.
+        Set<Object> managedIds = new HashSet<>();
+        for (EntityKey key : session.getStatistics().getEntityKeys()) {
+            if (key.getEntityName().equals(Member.class.getName())) {
+                managedIds.add(key.getIdentifier());
+            }
+        }
+        Map<Long, Member> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (id == null) {
+                continue;
+            }
+            if (!managedIds.contains(id) && !cache.contains(Member.class, id)) {
+                misses.add(id);
+                continue;
+            }
+            //영속성 컨텍스트 또는 2차 캐시에서 꺼낸다. remove 된 엔티티는 null 이다.
+            Member cached = entityManager.find(Member.class, id);
+            if (cached != null) {
+                found.put(id, cached);
+            }
+        }
 
+        if (!misses.isEmpty()) {
+            long start = System.nanoTime();
+            List<Member> loaded = session
+                    .byMultipleIds(Member.class)
+                    .enableSessionCheck(true)
+                    .enableOrderedReturn(true)
+                    .withBatchSize(lookupChunkSize)
+                    .multiLoad(InListPadding.pad(misses));
+            List<Member> hits = new ArrayList<>(misses.size());
+            for (Member loadedMember : loaded) {
+                //ordered return 은 없는 id 와 remove 된 엔티티 자리에 null 을 넣는다.
+                if (loadedMember != null && found.putIfAbsent(loadedMember.getId(), loadedMember) == null) {
+                    hits.add(loadedMember);
+                }
+            }
+            findAllByIdInOrderMetrics.recordContent(start, hits);
+        }
+
+        List<Member> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Member findMember = id != null ? found.get(id) : null;
+            if (findMember != null) {
+                results.add(findMember);
+            }
+        }
+        return results;
     }
 
+    /**
+     * 결과를 List 로 모으지 않고 JDBC fetch size 단위로 스크롤하면서 한 건씩 consumer 에 넘긴다.
+     * DTO projection 이라 영속성 컨텍스트에 쌓이는 엔티티가 없으므로 결과 크기와 상관없이 메모리 사용량이 일정하다.
+     * 호출한 쪽의 엔티티가 준영속이 되지 않도록 영속성 컨텍스트는 비우지 않는다.
+     *
+     * @return 넘겨준 건수
+     */
     @Override
-    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-
-        QueryResults<MemberTeamDto> results = queryFactory.select(new QMemberTeamDto(
+    public long searchStream(MemberSearchCondition searchCondition, Consumer<MemberTeamDto> consumer) {
+        MemberSearchCondition condition = usernameIndex.resolve(searchCondition);
+        long start = System.nanoTime();
+        long count = 0;
+        try (Stream<MemberTeamDto> stream = joinTeam(queryFactory.select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
                         team.id.as("teamId"),
                         team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
+                .from(member), StringUtils.hasText(condition.getTeamName()))
+                .where(MemberSearchParams.usernameMatches(condition),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();
+                .setHint(QueryHints.FETCH_SIZE, streamFetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .stream()) {
+
+            Iterator<MemberTeamDto> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+            }
+        }
+        searchStreamMetrics.recordContent(start, (int) Math.min(count, Integer.MAX_VALUE), 0);
+        return count;
+    }
 
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return resultCache.page("MemberRepository.searchPageSimple", condition, pageable,
+                () -> fetchPageSimple(condition, pageable));
+    }
 
-        return new PageImpl<>(content,pageable,total);
+    private Page<MemberTeamDto> fetchPageSimple(MemberSearchCondition searchCondition, Pageable pageable) {
+        MemberSearchCondition condition = usernameIndex.resolve(searchCondition);
+        int shape = MemberSearchParams.shape(condition);
+        Map<ParamExpression<?>, Object> params = MemberSearchParams.bind(condition);
+        OptionalLong indexed = bitmapIndex.count(condition);
+        if (indexed.isPresent() && indexed.getAsLong() == 0) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
 
+        long start = System.nanoTime();
+        List<MemberTeamDto> content = searchPageSimpleMetrics.recordContent(start, contentQuery(shape)
+                .fetch(entityManager, params, pageable.getOffset(), pageable.getPageSize()));
+        long countStart = System.nanoTime();
+        long total = indexed.isPresent() ? indexed.getAsLong()
+                : searchPageSimpleMetrics.recordCount(countStart, countQuery(shape).fetchOne(entityManager, params));
 
+        return new PageImpl<>(content,pageable,total);
     }
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> results = queryFactory.select(new QMemberTeamDto(
+        return resultCache.page("MemberRepository.searchPageComplex", condition, pageable,
+                () -> fetchPageComplex(condition, pageable));
+    }
+
+    private Page<MemberTeamDto> fetchPageComplex(MemberSearchCondition searchCondition, Pageable pageable) {
+        MemberSearchCondition condition = usernameIndex.resolve(searchCondition);
+        int shape = MemberSearchParams.shape(condition);
+        Map<ParamExpression<?>, Object> params = MemberSearchParams.bind(condition);
+        OptionalLong indexed = bitmapIndex.count(condition);
+        if (indexed.isPresent() && indexed.getAsLong() == 0) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
+        long start = System.nanoTime();
+        List<MemberTeamDto> results = searchPageComplexMetrics.recordContent(start, contentQuery(shape)
+                .fetch(entityManager, params, pageable.getOffset(), pageable.getPageSize()));
+
+        if (indexed.isPresent()) {
+            return PageableExecutionUtils.getPage(results, pageable, indexed::getAsLong);
+        }
+        return PageableExecutionUtils.getPage(results,pageable,
+                ()->countCache.get(condition,()->searchPageComplexMetrics.recordCount(System.nanoTime(),
+                        countQuery(shape).fetchOne(entityManager,params))));
+    }
+
+    /**
+     * total 없이 다음 페이지 유무만 돌려준다. count 쿼리 대신 pageSize + 1 건을 읽어 hasNext 를 정한다.
+     * 정렬은 memberId/username/age/teamName 만 받고, 페이지 경계가 실행마다 달라지지 않도록 항상 id 로 끝낸다.
+     */
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition searchCondition, Pageable pageable) {
+        //bitmap 으로 0 건을 걸러 내지 않는다. 팀 조회와 후보 비트맵 복사 없이 content 쿼리 하나만 실행한다.
+        MemberSearchCondition condition = usernameIndex.resolve(searchCondition);
+        long start = System.nanoTime();
+        List<MemberTeamDto> results = searchSliceMetrics.recordContent(start, contentQuery(MemberSearchParams.shape(condition))
+                .orderBy(entityManager, sliceOrder(pageable.getSort()))
+                .fetch(entityManager, MemberSearchParams.bind(condition), pageable.getOffset(), pageable.getPageSize() + 1));
+
+        boolean hasNext = results.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? results.subList(0, pageable.getPageSize()) : results, pageable, hasNext);
+    }
+
+    /**
+     * {@link MemberBitmapIndex} 로 건수를 셀 수 있으면 그 값을 정확한 total 로 쓴다.
+     * 그 밖에 exact 가 false 이면 count 쿼리 대신 통계 기반 추정치를 total 로 사용한다.
+     * content 만으로 total 이 확정되는 경우(마지막 페이지 등)와 추정이 불가능한 조건은 정확한 값을 돌려준다.
+     */
+    @Override
+    public EstimatedPage<MemberTeamDto> searchPageEstimated(MemberSearchCondition searchCondition, Pageable pageable, boolean exact) {
+        MemberSearchCondition condition = usernameIndex.resolve(searchCondition);
+        int shape = MemberSearchParams.shape(condition);
+        Map<ParamExpression<?>, Object> params = MemberSearchParams.bind(condition);
+
+        long start = System.nanoTime();
+        List<MemberTeamDto> results = searchPageEstimatedMetrics.recordContent(start, contentQuery(shape)
+                .fetch(entityManager, params, pageable.getOffset(), pageable.getPageSize()));
+
+        boolean lastPage = results.size() < pageable.getPageSize() && (pageable.getOffset() == 0 || !results.isEmpty());
+        if (lastPage) {
+            return new EstimatedPage<>(results, pageable, pageable.getOffset() + results.size(), true);
+        }
+
+        OptionalLong indexed = bitmapIndex.count(condition);
+        if (indexed.isPresent()) {
+            return new EstimatedPage<>(results, pageable, Math.max(indexed.getAsLong(), pageable.getOffset() + results.size()), true);
+        }
+
+        OptionalLong estimate = exact ? OptionalLong.empty() : countEstimator.estimate(condition);
+        if (estimate.isPresent()) {
+            long total = Math.max(estimate.getAsLong(), pageable.getOffset() + results.size());
+            return new EstimatedPage<>(results, pageable, total, false);
+        }
+
+        long total = countCache.get(condition, () -> searchPageEstimatedMetrics.recordCount(System.nanoTime(),
+                countQuery(shape).fetchOne(entityManager, params)));
+        return new EstimatedPage<>(results, pageable, total, true);
+    }
+
+    /**
+     * content 쿼리와 count 쿼리를 서로 다른 커넥션에서 병렬로 실행한다.
+     */
+    @Override
+    public Page<MemberTeamDto> searchPageConcurrent(MemberSearchCondition searchCondition, Pageable pageable) {
+        MemberSearchCondition condition = usernameIndex.resolve(searchCondition);
+        return concurrentPageExecutor.getPage(pageable,
+                () -> searchPageConcurrentMetrics.recordContent(System.nanoTime(), joinTeam(queryFactory.select(new QMemberTeamDto(
+                                member.id.as("memberId"),
+                                member.username,
+                                member.age,
+                                team.id.as("teamId"),
+                                team.name.as("teamName")))
+                        .from(member), StringUtils.hasText(condition.getTeamName()))
+                        .where(MemberSearchParams.usernameMatches(condition),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe()))
+                        .offset(pageable.getOffset())
+                        .limit(pageable.getPageSize())
+                        .fetch()),
+                em -> searchPageConcurrentMetrics.recordCount(System.nanoTime(), joinTeamIfFiltered(new JPAQueryFactory(em)
+                        .select(member.count())
+                        .from(member), StringUtils.hasText(condition.getTeamName()))
+                        .where(MemberSearchParams.usernameMatches(condition),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe()))
+                        .setHint(ConcurrentPageExecutor.QUERY_TIMEOUT_HINT, concurrentPageExecutor.getCountTimeoutMillis())
+                        .fetchOne()));
+    }
+
+    /**
+     * offset 대신 (정렬 키, member.id) 로 seek 하므로 페이지 깊이와 상관없이 limit + 1 건만 읽는다.
+     */
+    @Override
+    public MemberCursorPage searchByCursor(MemberSearchCondition searchCondition, MemberCursor.Sort sort, String cursor, int size) {
+        MemberSearchCondition condition = usernameIndex.resolve(searchCondition);
+        MemberCursor after = StringUtils.hasText(cursor) ? MemberCursor.decode(cursor) : null;
+        MemberCursor.Sort effectiveSort = after != null ? after.getSort() : sort;
+
+        long start = System.nanoTime();
+        List<MemberTeamDto> results = searchByCursorMetrics.recordContent(start, joinTeam(queryFactory.select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
                         team.id.as("teamId"),
                         team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
-
-        JPAQuery<Member> countQuery = queryFactory.select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
+                .from(member), StringUtils.hasText(condition.getTeamName()))
+                .where(MemberSearchParams.usernameMatches(condition),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
+                        ageLoe(condition.getAgeLoe()),
+                        seek(after))
+                .orderBy(cursorOrder(effectiveSort))
+                .limit(size + 1)
+                .fetch());
 
+        boolean hasNext = results.size() > size;
+        List<MemberTeamDto> content = hasNext ? results.subList(0, size) : results;
+        String nextCursor = hasNext ? MemberCursor.after(effectiveSort, content.get(size - 1)).encode() : null;
 
-        return PageableExecutionUtils.getPage(results,pageable,()->countQuery.fetchCount()  );
+        return new MemberCursorPage(content, size, hasNext, nextCursor);
+    }
 
-        //return new PageImpl<>(results,pageable,count);
+    private BooleanExpression seek(MemberCursor after) {
+        if (after == null) {
+            return null;
+        }
+        if (after.getSort() == MemberCursor.Sort.AGE) {
+            // (age, id) > (lastAge, lastId) 를 age 인덱스 범위 조건으로 쓸 수 있게 age >= lastAge 를 앞에 둔다.
+            return member.age.goe(after.getLastAge())
+                    .and(member.age.gt(after.getLastAge()).or(member.id.gt(after.getLastId())));
+        }
+        return member.id.gt(after.getLastId());
     }
 
-    private BooleanExpression ageBetween(int ageLoe, int ageGoe){
-        return ageGoe(ageGoe).and(ageLoe(ageLoe));
+    private OrderSpecifier<?>[] cursorOrder(MemberCursor.Sort sort) {
+        if (sort == MemberCursor.Sort.AGE) {
+            return new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+        }
+        return new OrderSpecifier<?>[]{member.id.asc()};
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username)?member.username.eq(username):null;
+    /**
+     * id 범위 청크마다 별도 트랜잭션으로 커밋한다. 청크 트랜잭션을 직접 열므로 읽기 전용 트랜잭션을 시작하지 않는다.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public BulkUpdateResult bulkUpdate(MemberSearchCondition condition, MemberBulkUpdate update, Consumer<BulkProgress> progress) {
+        return bulkUpdater.update(condition, update, progress);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public BulkUpdateResult bulkDelete(MemberSearchCondition condition, Consumer<BulkProgress> progress) {
+        return bulkUpdater.delete(condition, progress);
+    }
+
+    private static List<OrderSpecifier<?>> sliceOrder(Sort sort) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        boolean byId = false;
+        for (Sort.Order order : sort) {
+            ComparableExpressionBase<?> path = SLICE_SORT_PATHS.get(order.getProperty());
+            if (path == null) {
+                throw new InvalidSortException(order.getProperty());
+            }
+            orders.add(order.isAscending() ? path.asc() : path.desc());
+            byId |= path == member.id;
+        }
+        if (!byId) {
+            orders.add(member.id.asc());
+        }
+        return orders;
+    }
+
+    private CompiledQuery<MemberTeamDto> contentQuery(int shape) {
+        return compiledQueryCache.get("MemberRepositoryImpl.content:" + shape, entityManager, () ->
+                joinTeam(queryFactory.select(new QMemberTeamDto(
+                                member.id.as("memberId"),
+                                member.username,
+                                member.age,
+                                team.id.as("teamId"),
+                                team.name.as("teamName")))
+                        .from(member), MemberSearchParams.hasTeamName(shape))
+                        .where(MemberSearchParams.usernameMatches(shape),
+                                MemberSearchParams.teamNameEq(shape),
+                                MemberSearchParams.ageGoe(shape),
+                                MemberSearchParams.ageLoe(shape)));
+    }
+
+    private CompiledQuery<Long> countQuery(int shape) {
+        return compiledQueryCache.get("MemberRepositoryImpl.count:" + shape, entityManager, () ->
+                joinTeamIfFiltered(queryFactory.select(member.count())
+                        .from(member), MemberSearchParams.hasTeamName(shape))
+                        .where(MemberSearchParams.usernameMatches(shape),
+                                MemberSearchParams.teamNameEq(shape),
+                                MemberSearchParams.ageGoe(shape),
+                                MemberSearchParams.ageLoe(shape)));
+    }
+
+    /**
+     * teamName 조건이 있으면 inner join 으로 바꿔 team.name 인덱스에서 시작해 member.team_id 인덱스로 들어갈 수 있게 한다.
+     * left join 이면 member 를 먼저 전부 읽어야 한다.
+     */
+    private static <T> JPAQuery<T> joinTeam(JPAQuery<T> query, boolean hasTeamName) {
+        return hasTeamName ? query.join(member.team, team) : query.leftJoin(member.team, team);
+    }
+
+    /**
+     * count 나 엔티티 조회처럼 team 컬럼을 읽지 않는 쿼리는 teamName 조건이 없으면 join 하지 않는다.
+     */
+    private static <T> JPAQuery<T> joinTeamIfFiltered(JPAQuery<T> query, boolean hasTeamName) {
+        return hasTeamName ? query.join(member.team, team) : query;
+    }
+
+    private BooleanExpression ageBetween(int ageLoe, int ageGoe){
+        return ageGoe(ageGoe).and(ageLoe(ageLoe));
     }
 
     private BooleanExpression teamNameEq(String teamName) {
@@ -1,10 +1,12 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.JPQLQuery;
-import com.querydsl.jpa.impl.JPAQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
@@ -12,9 +14,12 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.repository.support.CompiledQuery;
+import study.querydsl.repository.support.MemberSearchParams;
 import study.querydsl.repository.support.QueryDsl4RepositorySupport;
 
 import java.util.List;
+import java.util.Map;
 
 import static study.querydsl.entity.QMember.*;
 import static study.querydsl.entity.QTeam.team;
@@ -38,14 +43,35 @@ public class MemberTestRepository extends QueryDsl4RepositorySupport {
     }
 
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable){
-        JPAQuery<Member> query = selectFrom(member)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
-        List<Member> content = getQuerydsl().applyPagination(pageable, query).fetch();
-
-        return PageableExecutionUtils.getPage(content,pageable,query::fetchCount);
+        int shape = MemberSearchParams.shape(condition);
+        Map<ParamExpression<?>, Object> params = MemberSearchParams.bind(condition);
+
+        //정렬은 요청마다 달라지므로 캐시 키에 넣지 않고 실행할 때마다 붙인다.
+        List<OrderSpecifier<?>> orders = getQuerydsl().applySorting(pageable.getSort(), selectFrom(member))
+                .getMetadata()
+                .getOrderBy();
+        CompiledQuery<Member> contentQuery = getCompiledQueryCache().get(
+                "MemberTestRepository.searchPageByApplyPage:" + shape, getEntityManager(),
+                () -> selectFrom(member)
+                        .where(MemberSearchParams.usernameMatches(shape),
+                                MemberSearchParams.teamNameEq(shape),
+                                MemberSearchParams.ageGoe(shape),
+                                MemberSearchParams.ageLoe(shape)))
+                .orderBy(getEntityManager(), orders);
+        List<Member> content = pageable.isPaged()
+                ? contentQuery.fetch(getEntityManager(), params, pageable.getOffset(), pageable.getPageSize())
+                : contentQuery.fetch(getEntityManager(), params);
+
+        CompiledQuery<Long> countQuery = getCompiledQueryCache().get(
+                "MemberTestRepository.searchPageByApplyPage.count:" + shape, getEntityManager(),
+                () -> select(member.count())
+                        .from(member)
+                        .where(MemberSearchParams.usernameMatches(shape),
+                                MemberSearchParams.teamNameEq(shape),
+                                MemberSearchParams.ageGoe(shape),
+                                MemberSearchParams.ageLoe(shape)));
+
+        return PageableExecutionUtils.getPage(content,pageable,()->countQuery.fetchOne(getEntityManager(),params));
     }
 
     public Page<Member> applyPagination(MemberSearchCondition condition,Pageable pageable){
@@ -82,6 +108,39 @@ public class MemberTestRepository extends QueryDsl4RepositorySupport {
 
     }
 
+    public Slice<Member> applySlicing(MemberSearchCondition condition,Pageable pageable){
+        return applySlicing(pageable, query ->
+                query.selectFrom(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe())
+                        ));
+    }
+
+    public Page<Member> applyConcurrentPagination(MemberSearchCondition condition,Pageable pageable){
+        return applyConcurrentPagination(pageable,
+                contentQuery ->
+                contentQuery.selectFrom(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe())
+                        ),
+                countQuery ->countQuery
+                .select(member.id)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+            );
+    }
+
 
 
 
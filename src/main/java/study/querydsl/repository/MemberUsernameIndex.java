@@ -0,0 +1,239 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.repository.event.MemberSnapshot;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * username 의 PREFIX/CONTAINS 검색을 DB 없이 member id 목록으로 바꿔 주는 메모리 인덱스
+ * <p>
+ * PREFIX 는 username 으로 정렬된 TreeMap 에서 범위로 찾고, CONTAINS 는 3글자 단위(trigram) posting 을 교집합한 뒤
+ * 실제로 포함하는지 한 번 더 확인한다. 3글자보다 짧은 검색어는 1, 2글자 posting 이 곧 답이므로 username 전체를 훑는 검색은 없다.
+ * 조회는 읽기 락만 잡으므로 서로 막지 않고, 찾는 데 드는 시간은 posting 크기와 max-ids 에 비례한다.
+ * <p>
+ * 다시 만들 때는 (id, username) 을 한 번 읽는다.
+ * 찾은 id 가 max-ids 보다 많거나, 인덱스가 최신이 아니거나, 쓰기 트랜잭션 안이면
+ * 조건을 그대로 돌려줘 SQL like 로 검색하게 한다.
+ */
+@Component
+public class MemberUsernameIndex extends RebuildableMemberIndex<MemberUsernameIndex.Usernames> {
+
+    private static final int GRAM = 3;
+
+    //어떤 회원과도 맞지 않는 id. 찾은 회원이 없을 때 id 목록을 비워 두면 in () 이 되므로 대신 넣는다.
+    private static final List<Long> NO_MEMBER = List.of(-1L);
+
+    private final int maxIds;
+
+    private Usernames index = new Usernames();
+
+    public MemberUsernameIndex(EntityManagerFactory entityManagerFactory,
+                               @Value("${querydsl.username-index.max-ids:1000}") int maxIds) {
+        super(entityManagerFactory, "member-username-index");
+        //찾은 id 는 memberIds 로 들어가므로 그 제한을 넘을 수 없다.
+        this.maxIds = Math.min(maxIds, MemberSearchCondition.MAX_MEMBER_IDS);
+    }
+
+    /**
+     * PREFIX/CONTAINS 조건을 username 조건 대신 id 목록 조건으로 바꾼 사본을 돌려준다.
+     * 바꿀 수 없으면 condition 을 그대로 돌려준다.
+     */
+    public MemberSearchCondition resolve(MemberSearchCondition condition) {
+        if (condition.isExactUsername() || !StringUtils.hasText(condition.getUsername()) || writeTransaction()) {
+            return condition;
+        }
+
+        Optional<Set<Long>> found = find(condition.getUsername(), condition.getUsernameMatch());
+        if (found.isEmpty()) {
+            return condition;
+        }
+
+        Set<Long> ids = found.get();
+        if (condition.getMemberIds() != null) {
+            ids.retainAll(condition.getMemberIds());
+        }
+        MemberSearchCondition resolved = condition.copy();
+        resolved.setUsername(null);
+        resolved.setUsernameMatch(null);
+        resolved.setMemberIds(ids.isEmpty() ? NO_MEMBER : new ArrayList<>(ids));
+        return resolved;
+    }
+
+    /**
+     * @return username 이 맞는 member id. 인덱스를 쓸 수 없거나 max-ids 를 넘으면 empty
+     */
+    public Optional<Set<Long>> find(String username, UsernameMatch match) {
+        Lock lock = readLock();
+        lock.lock();
+        try {
+            if (!isCurrent()) {
+                return Optional.empty();
+            }
+            Set<Long> ids = match == UsernameMatch.PREFIX ? findPrefix(username) : findContaining(username);
+            return ids != null ? Optional.of(ids) : Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Set<Long> findPrefix(String prefix) {
+        Set<Long> ids = new TreeSet<>();
+        for (Map.Entry<String, Set<Long>> entry : index.byUsername.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            ids.addAll(entry.getValue());
+            if (ids.size() > maxIds) {
+                return null;
+            }
+        }
+        return ids;
+    }
+
+    private Set<Long> findContaining(String text) {
+        if (text.length() < GRAM) {
+            Set<Long> posting = index.grams.getOrDefault(text, Set.of());
+            return posting.size() > maxIds ? null : new TreeSet<>(posting);
+        }
+
+        Set<Long> ids = new TreeSet<>();
+
+        //가장 짧은 posting 에서 시작해 후보를 줄인다.
+        List<Set<Long>> postings = new ArrayList<>();
+        for (String gram : grams(text)) {
+            Set<Long> posting = index.grams.get(gram);
+            if (posting == null) {
+                return ids;
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+
+        for (Long id : postings.get(0)) {
+            if (containsAll(postings, id) && index.usernames.get(id).contains(text) && ids.add(id) && ids.size() > maxIds) {
+                return null;
+            }
+        }
+        return ids;
+    }
+
+    private static boolean containsAll(List<Set<Long>> postings, Long id) {
+        for (int i = 1; i < postings.size(); i++) {
+            if (!postings.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    /**
+     * username 이 가진 GRAM 글자 이하의 모든 부분 문자열
+     */
+    private static Set<String> indexGrams(String username) {
+        Set<String> result = new HashSet<>();
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= username.length(); i++) {
+                result.add(username.substring(i, i + length));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected Usernames load(EntityManager em) {
+        List<Tuple> rows = new JPAQueryFactory(em)
+                .select(member.id, member.username)
+                .from(member)
+                .fetch();
+        Usernames loaded = new Usernames();
+        for (Tuple row : rows) {
+            loaded.add(row.get(member.id), row.get(member.username));
+        }
+        return loaded;
+    }
+
+    @Override
+    protected boolean replace(Usernames loaded) {
+        index = loaded;
+        return true;
+    }
+
+    @Override
+    protected boolean apply(MemberSnapshot before, MemberSnapshot after) {
+        if (before != null && after != null && Objects.equals(before.getUsername(), after.getUsername())) {
+            return true;
+        }
+        if (before != null) {
+            index.remove(before.getId());
+        }
+        if (after != null) {
+            index.add(after.getId(), after.getUsername());
+        }
+        return true;
+    }
+
+    static class Usernames {
+        private final TreeMap<String, Set<Long>> byUsername = new TreeMap<>();
+        private final Map<Long, String> usernames = new HashMap<>();
+        private final Map<String, Set<Long>> grams = new HashMap<>();
+
+        void add(Long id, String username) {
+            if (username == null) {
+                return;
+            }
+            usernames.put(id, username);
+            byUsername.computeIfAbsent(username, key -> new HashSet<>()).add(id);
+            for (String gram : indexGrams(username)) {
+                grams.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+            }
+        }
+
+        void remove(Long id) {
+            String username = usernames.remove(id);
+            if (username == null) {
+                return;
+            }
+            removeFrom(byUsername, username, id);
+            for (String gram : indexGrams(username)) {
+                removeFrom(grams, gram, id);
+            }
+        }
+
+        private static void removeFrom(Map<String, Set<Long>> postings, String key, Long id) {
+            Set<Long> ids = postings.get(key);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+}
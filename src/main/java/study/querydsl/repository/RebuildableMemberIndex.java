@@ -0,0 +1,262 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.repository.event.MemberChangeListener;
+import study.querydsl.repository.event.MemberSnapshot;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * member 테이블을 메모리에 옮겨 둔 read model 의 공통 갱신 규약
+ * <p>
+ * 엔티티 변경은 커밋 이후 {@link #apply} 로 증분 반영하고, 벌크 연산이 커밋되거나 증분 반영이 어긋나면 stale 로 표시한다.
+ * stale 인 동안 조회는 {@link #isCurrent()} 가 false 를 돌려주므로 호출하는 쪽은 SQL 로 처리하고, 다시 만들기는
+ * 전용 스레드에서 한 번만 실행된다. 요청 스레드는 테이블 전체를 읽지도, 커넥션을 하나 더 잡지도 않는다.
+ * <p>
+ * 새 인덱스는 {@link #load} 에서 락 없이 만들고 쓰기 락으로 참조만 바꾼다. 읽는 동안 커밋된 변경은 모아 뒀다가
+ * 바꾼 뒤에 다시 반영하므로, 쓰기가 계속 들어와도 다시 만든 인덱스를 버리지 않는다.
+ * <p>
+ * 하위 클래스의 인덱스 필드는 {@link #readLock()} 으로 읽고, 변경은 쓰기 락을 잡은 이 클래스만 한다.
+ *
+ * @param <S> {@link #load} 가 만든 새 인덱스
+ */
+@Slf4j
+public abstract class RebuildableMemberIndex<S> implements MemberChangeListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final String name;
+    private final ExecutorService rebuilder;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    //다시 만들기가 겹치지 않게 한다. 기동 시 warm-up, 테스트, 전용 스레드가 함께 부를 수 있다.
+    private final Object rebuildMonitor = new Object();
+
+    //아래 필드는 쓰기 락을 잡고 바꾼다.
+    private volatile boolean stale = true;
+    private long changes;
+    private long bulkChanges;
+    //다시 만드는 동안에만 null 이 아니다.
+    private List<Change> buffered;
+
+    protected RebuildableMemberIndex(EntityManagerFactory entityManagerFactory, String name) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.name = name;
+        this.rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 원본을 읽어 새 인덱스를 만든다. 락 밖에서 전용 EntityManager 로 호출되므로 지금 쓰는 인덱스 필드는 건드리지 않는다.
+     */
+    protected abstract S load(EntityManager em);
+
+    /**
+     * {@link #load} 가 만든 인덱스로 바꾼다. 쓰기 락을 잡은 채로 호출되므로 참조만 바꾼다.
+     *
+     * @return 인덱스로 표현할 수 없는 행이 있으면 false. 이때는 stale 로 남는다.
+     */
+    protected abstract boolean replace(S loaded);
+
+    /**
+     * 커밋된 엔티티 변경 하나를 반영한다. 쓰기 락을 잡은 채로, 인덱스가 최신일 때와 다시 만든 직후에 호출된다.
+     *
+     * @param before 변경 전. insert 면 null
+     * @param after  변경 후. delete 면 null
+     * @return 인덱스와 어긋났으면 false. 이때는 다시 만든다.
+     */
+    protected abstract boolean apply(MemberSnapshot before, MemberSnapshot after);
+
+    /**
+     * {@link #apply} 를 이미 반영된 변경에 한 번 더 해도 결과가 같으면 true.
+     * <p>
+     * 다시 만드는 동안 커밋된 변경은 읽어 온 원본에 포함됐는지 알 수 없다. true 면 모아 둔 변경을 새 인덱스에 다시 반영하고,
+     * false 면(건수를 더하고 빼는 집계 등) 새 인덱스를 쓰되 stale 로 남겨 한 번 더 만든다.
+     */
+    protected boolean idempotent() {
+        return true;
+    }
+
+    /**
+     * 인덱스 필드를 읽을 때 잡는 락. 조회끼리는 서로 막지 않는다.
+     */
+    protected final Lock readLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * 인덱스가 최신이면 true. 아니면 다시 만들기를 예약하고 false 를 돌려준다.
+     * 최신인 동안 인덱스를 읽으려면 {@link #readLock()} 을 잡은 채로 호출한다.
+     */
+    protected final boolean isCurrent() {
+        if (!stale) {
+            return true;
+        }
+        scheduleRebuild();
+        return false;
+    }
+
+    /**
+     * 커밋 전 쓰기가 보여야 하는 쓰기 트랜잭션 안이면 인덱스를 쓰지 않는다.
+     */
+    protected static boolean writeTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * 호출한 스레드에서 바로 다시 만든다. 기동 시 warm-up 과 테스트에서 쓴다.
+     */
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            long observedChanges;
+            long observedBulkChanges;
+            Lock write = lock.writeLock();
+            write.lock();
+            try {
+                observedChanges = changes;
+                observedBulkChanges = bulkChanges;
+                buffered = idempotent() ? new ArrayList<>() : null;
+            } finally {
+                write.unlock();
+            }
+
+            S loaded = null;
+            try {
+                loaded = loadFromDatabase();
+            } finally {
+                write.lock();
+                try {
+                    if (loaded != null) {
+                        swap(loaded, observedChanges, observedBulkChanges);
+                    }
+                    buffered = null;
+                } finally {
+                    write.unlock();
+                }
+            }
+        }
+        log.debug("rebuilt {}", name);
+    }
+
+    private void swap(S loaded, long observedChanges, long observedBulkChanges) {
+        boolean usable = replace(loaded);
+        if (buffered == null) {
+            stale = !usable || changes != observedChanges;
+            return;
+        }
+        for (Change change : buffered) {
+            if (!usable) {
+                break;
+            }
+            usable = apply(change.before, change.after);
+        }
+        //벌크 연산은 어떤 행이 바뀌었는지 모르므로 다시 반영할 수 없다.
+        stale = !usable || bulkChanges != observedBulkChanges;
+    }
+
+    /**
+     * 전용 EntityManager 로 {@link #load} 를 실행한다.
+     */
+    protected final S loadFromDatabase() {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            return load(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuilder.execute(this::rebuildInBackground);
+        } catch (RejectedExecutionException e) {
+            //종료 중이다.
+            rebuilding.set(false);
+        }
+    }
+
+    private void rebuildInBackground() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("failed to rebuild {}", name, e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    @Override
+    public void inserted(MemberSnapshot after) {
+        changed(null, after);
+    }
+
+    @Override
+    public void updated(MemberSnapshot before, MemberSnapshot after) {
+        changed(before, after);
+    }
+
+    @Override
+    public void deleted(MemberSnapshot before) {
+        changed(before, null);
+    }
+
+    @Override
+    public void bulkChanged() {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            changes++;
+            bulkChanges++;
+            stale = true;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    private void changed(MemberSnapshot before, MemberSnapshot after) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            changes++;
+            if (buffered != null) {
+                buffered.add(new Change(before, after));
+            }
+            if (!stale && !apply(before, after)) {
+                stale = true;
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Change {
+        private final MemberSnapshot before;
+        private final MemberSnapshot after;
+    }
+}
@@ -0,0 +1,14 @@
+package study.querydsl.repository;
+
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHint;
+import study.querydsl.entity.Team;
+
+import java.util.List;
+
+public interface TeamRepository extends JpaRepository<Team,Long> {
+    //팀은 거의 바뀌지 않으므로 query cache 에 올려둔다.
+    @org.springframework.data.jpa.repository.QueryHints(@QueryHint(name = QueryHints.CACHEABLE, value = "true"))
+    List<Team> findByName(String name);
+}
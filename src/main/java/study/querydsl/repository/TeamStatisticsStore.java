@@ -0,0 +1,173 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.event.MemberSnapshot;
+import study.querydsl.repository.support.TeamStatisticsNotReadyException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 팀별 회원 수, 나이 합/최소/최대를 메모리에 유지하는 read model
+ * <p>
+ * Member 엔티티 변경은 커밋 이후 이벤트로 증분 반영하고, 벌크 update/delete 가 커밋되면 (team, age) 별 count 한 번으로
+ * 전용 스레드에서 다시 만든다. 다시 만드는 동안에는 직전 통계를 그대로 돌려주므로 요청 스레드는 DB 를 읽지 않는다.
+ * 조회는 팀 수에만 비례한다. 최소/최대는 삭제 시에도 유지할 수 있도록 팀마다 나이별 인원수를 들고 있는다.
+ * <p>
+ * Hibernate 를 거치지 않은 쓰기(JDBC 직접 실행 등)는 반영되지 않는다.
+ */
+@Component
+public class TeamStatisticsStore extends RebuildableMemberIndex<Map<Long, TeamStatisticsStore.TeamAges>> {
+
+    private final EntityManager em;
+
+    //처음 만들기 전에는 null 이다.
+    private Map<Long, TeamAges> teams;
+
+    public TeamStatisticsStore(EntityManagerFactory entityManagerFactory, EntityManager em) {
+        super(entityManagerFactory, "team-statistics");
+        this.em = em;
+    }
+
+    /**
+     * 팀별 통계. 다시 만드는 중이면 직전 통계를 돌려준다.
+     *
+     * @throws TeamStatisticsNotReadyException 기동 후 아직 한 번도 만들지 못했을 때
+     */
+    public List<TeamStatisticsDto> statistics() {
+        List<TeamStatisticsDto> result = new ArrayList<>();
+        Lock lock = readLock();
+        lock.lock();
+        try {
+            //stale 이면 다시 만들기만 예약한다.
+            isCurrent();
+            if (teams == null) {
+                throw new TeamStatisticsNotReadyException();
+            }
+            teams.forEach((teamId, ages) -> result.add(ages.toDto(teamId)));
+        } finally {
+            lock.unlock();
+        }
+
+        for (TeamStatisticsDto dto : result) {
+            //Team 은 호출한 쪽의 EntityManager 로 2차 캐시에서 꺼낸다.
+            Team team = em.find(Team.class, dto.getTeamId());
+            dto.setTeamName(team != null ? team.getName() : null);
+        }
+        result.sort(Comparator.comparing(TeamStatisticsDto::getTeamId));
+        return result;
+    }
+
+    /**
+     * 마지막으로 만든 뒤에 반영하지 못한 변경이 있으면 true. 이때 {@link #statistics()} 는 직전 통계다.
+     */
+    public boolean isStale() {
+        return !isCurrent();
+    }
+
+    @Override
+    protected Map<Long, TeamAges> load(EntityManager em) {
+        Map<Long, TeamAges> loaded = new HashMap<>();
+        List<Tuple> rows = new JPAQueryFactory(em)
+                .select(member.team.id, member.age, member.count())
+                .from(member)
+                .where(member.team.isNotNull())
+                .groupBy(member.team.id, member.age)
+                .fetch();
+        for (Tuple row : rows) {
+            loaded.computeIfAbsent(row.get(member.team.id), id -> new TeamAges())
+                    .add(row.get(member.age), row.get(member.count()));
+        }
+        return loaded;
+    }
+
+    @Override
+    protected boolean replace(Map<Long, TeamAges> loaded) {
+        teams = loaded;
+        return true;
+    }
+
+    //건수를 더하고 빼므로 이미 읽어 온 변경을 다시 반영하면 두 번 센다.
+    @Override
+    protected boolean idempotent() {
+        return false;
+    }
+
+    @Override
+    protected boolean apply(MemberSnapshot before, MemberSnapshot after) {
+        if (before != null && !remove(before)) {
+            return false;
+        }
+        if (after != null) {
+            add(after);
+        }
+        return true;
+    }
+
+    private void add(MemberSnapshot snapshot) {
+        if (snapshot.getTeamId() != null) {
+            teams.computeIfAbsent(snapshot.getTeamId(), id -> new TeamAges()).add(snapshot.getAge(), 1);
+        }
+    }
+
+    /**
+     * @return 모르는 회원이 빠졌다면 이미 어긋난 상태이므로 false
+     */
+    private boolean remove(MemberSnapshot snapshot) {
+        if (snapshot.getTeamId() == null) {
+            return true;
+        }
+        TeamAges ages = teams.get(snapshot.getTeamId());
+        if (ages == null || !ages.remove(snapshot.getAge())) {
+            return false;
+        }
+        if (ages.count == 0) {
+            teams.remove(snapshot.getTeamId());
+        }
+        return true;
+    }
+
+    static class TeamAges {
+        private long count;
+        private long ageSum;
+        private final TreeMap<Integer, Long> ageCounts = new TreeMap<>();
+
+        void add(int age, long members) {
+            count += members;
+            ageSum += (long) age * members;
+            ageCounts.merge(age, members, Long::sum);
+        }
+
+        boolean remove(int age) {
+            Long members = ageCounts.get(age);
+            if (members == null) {
+                return false;
+            }
+            if (members == 1) {
+                ageCounts.remove(age);
+            } else {
+                ageCounts.put(age, members - 1);
+            }
+            count--;
+            ageSum -= age;
+            return true;
+        }
+
+        TeamStatisticsDto toDto(Long teamId) {
+            return new TeamStatisticsDto(teamId, null, count, ageSum, ageCounts.firstKey(), ageCounts.lastKey());
+        }
+    }
+}
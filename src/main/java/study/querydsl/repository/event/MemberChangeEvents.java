@@ -0,0 +1,87 @@
+package study.querydsl.repository.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Member 변경을 {@link MemberChangeListener} 빈들에게 전달한다.
+ * <p>
+ * 엔티티 변경은 {@link MemberEntityEventListener} 가 커밋 이후에 넘겨준다.
+ * 벌크 연산은 Hibernate 이벤트가 없으므로 {@link study.querydsl.repository.support.TableWriteStatementInspector} 가
+ * 엔티티 이벤트 구간 밖에서 실행되는 member 쓰기 SQL 을 발견하면 bulkWritten 을 호출한다.
+ * <p>
+ * listener 는 EntityManagerFactory 에 의존할 수 있으므로 생성 시점이 아니라 통지 시점에 찾는다.
+ */
+@Slf4j
+@Component
+public class MemberChangeEvents {
+
+    private static final ThreadLocal<Boolean> ENTITY_WRITE = new ThreadLocal<>();
+
+    private final ObjectProvider<MemberChangeListener> listeners;
+
+    public MemberChangeEvents(ObjectProvider<MemberChangeListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    void beginEntityWrite() {
+        ENTITY_WRITE.set(Boolean.TRUE);
+    }
+
+    void endEntityWrite() {
+        ENTITY_WRITE.remove();
+    }
+
+    public boolean isEntityWriteInProgress() {
+        return ENTITY_WRITE.get() != null;
+    }
+
+    /**
+     * 트랜잭션 안이면 트랜잭션이 끝난 뒤 한 번만, 아니면 바로 통지한다.
+     */
+    public void bulkWritten() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            fireBulkChanged();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberChangeEvents.this);
+                fireBulkChanged();
+            }
+        });
+    }
+
+    void fireInserted(MemberSnapshot member) {
+        listeners.orderedStream().forEach(listener -> notify(() -> listener.inserted(member)));
+    }
+
+    void fireUpdated(MemberSnapshot before, MemberSnapshot after) {
+        listeners.orderedStream().forEach(listener -> notify(() -> listener.updated(before, after)));
+    }
+
+    void fireDeleted(MemberSnapshot member) {
+        listeners.orderedStream().forEach(listener -> notify(() -> listener.deleted(member)));
+    }
+
+    void fireBulkChanged() {
+        listeners.orderedStream().forEach(listener -> notify(listener::bulkChanged));
+    }
+
+    //이미 커밋된 뒤이므로 listener 예외가 호출자에게 전파되지 않게 한다.
+    private void notify(Runnable notification) {
+        try {
+            notification.run();
+        } catch (RuntimeException e) {
+            log.warn("member change listener failed", e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.repository.event;
+
+/**
+ * Member 변경을 커밋 이후에 통지받는다.
+ * <p>
+ * 엔티티 단위 변경은 inserted/updated/deleted 로, 어떤 행이 바뀌었는지 알 수 없는 벌크 update/delete 는 bulkChanged 로 전달된다.
+ * 통지는 커밋한 스레드에서 동기로 호출되므로 오래 걸리는 작업을 하면 안 된다.
+ */
+public interface MemberChangeListener {
+
+    void inserted(MemberSnapshot member);
+
+    void updated(MemberSnapshot before, MemberSnapshot after);
+
+    void deleted(MemberSnapshot member);
+
+    /**
+     * member 테이블에 벌크 연산이 커밋(또는 롤백)되었다. 변경 내역을 알 수 없으므로 DB 에서 다시 만들어야 한다.
+     */
+    void bulkChanged();
+}
@@ -0,0 +1,139 @@
+package study.querydsl.repository.event;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.event.spi.PreDeleteEvent;
+import org.hibernate.event.spi.PreDeleteEventListener;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Member 엔티티의 insert/update/delete 를 Hibernate 이벤트로 받아 커밋 이후 {@link MemberChangeEvents} 로 넘긴다.
+ * <p>
+ * pre 이벤트부터 post 이벤트까지는 해당 엔티티의 SQL 이 준비되는 구간이므로, 그 사이에 실행되는 member 쓰기 SQL 은
+ * 벌크 연산이 아니라는 표시를 남긴다.
+ */
+@Component
+public class MemberEntityEventListener implements PreInsertEventListener, PostInsertEventListener,
+        PreUpdateEventListener, PostUpdateEventListener, PreDeleteEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final MemberChangeEvents events;
+
+    public MemberEntityEventListener(EntityManagerFactory entityManagerFactory, MemberChangeEvents events) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.events = events;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.PRE_INSERT, this);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.PRE_UPDATE, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.PRE_DELETE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            events.beginEntityWrite();
+        }
+        return false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            events.endEntityWrite();
+            MemberSnapshot member = MemberSnapshot.of((Member) event.getEntity());
+            afterCommit(event.getSession(), () -> events.fireInserted(member));
+        }
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            events.beginEntityWrite();
+        }
+        return false;
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            events.endEntityWrite();
+            MemberSnapshot after = MemberSnapshot.of((Member) event.getEntity());
+            Object[] oldState = event.getOldState();
+            if (oldState == null) {
+                //detached 엔티티를 select 없이 update 한 경우 이전 값을 알 수 없다.
+                afterCommit(event.getSession(), events::fireBulkChanged);
+                return;
+            }
+            MemberSnapshot before = snapshot(event.getPersister(), event.getId(), oldState);
+            afterCommit(event.getSession(), () -> events.fireUpdated(before, after));
+        }
+    }
+
+    @Override
+    public boolean onPreDelete(PreDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            events.beginEntityWrite();
+        }
+        return false;
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            events.endEntityWrite();
+            Object[] deletedState = event.getDeletedState();
+            MemberSnapshot member = deletedState != null
+                    ? snapshot(event.getPersister(), event.getId(), deletedState)
+                    : MemberSnapshot.of((Member) event.getEntity());
+            afterCommit(event.getSession(), () -> events.fireDeleted(member));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void afterCommit(EventSource session, Runnable notification) {
+        session.getActionQueue().registerProcess((boolean success, SharedSessionContractImplementor s) -> {
+            //SQL 이 실패하면 post 이벤트까지 오지 않으므로 남아 있을 수 있는 표시를 정리한다.
+            events.endEntityWrite();
+            if (success) {
+                notification.run();
+            }
+        });
+    }
+
+    private static MemberSnapshot snapshot(EntityPersister persister, Object id, Object[] state) {
+        return new MemberSnapshot((Long) id,
+                (String) state[persister.getEntityMetamodel().getPropertyIndex("username")],
+                (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")],
+                MemberSnapshot.teamId(state[persister.getEntityMetamodel().getPropertyIndex("team")]));
+    }
+}
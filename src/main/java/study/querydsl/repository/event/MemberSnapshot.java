@@ -0,0 +1,44 @@
+package study.querydsl.repository.event;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.proxy.HibernateProxy;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * flush 시점의 Member 컬럼 값
+ * <p>
+ * 커밋 이후에 다른 스레드에서 읽히므로 엔티티 대신 불변 값으로 넘긴다.
+ */
+@Getter
+@ToString
+public class MemberSnapshot {
+
+    private final Long id;
+    private final String username;
+    private final int age;
+    private final Long teamId;
+
+    public MemberSnapshot(Long id, String username, int age, Long teamId) {
+        this.id = id;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+    }
+
+    public static MemberSnapshot of(Member member) {
+        return new MemberSnapshot(member.getId(), member.getUsername(), member.getAge(), teamId(member.getTeam()));
+    }
+
+    static Long teamId(Object team) {
+        if (team == null) {
+            return null;
+        }
+        //프록시를 초기화하지 않고 식별자만 꺼낸다.
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@ToString
+public class BulkLoadResult {
+
+    private final List<Long> teamIds;
+    private final long members;
+    private final long elapsedMillis;
+
+    public BulkLoadResult(List<Long> teamIds, long members, long elapsedMillis) {
+        this.teamIds = teamIds;
+        this.members = members;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.repository.support;
+
+import lombok.Value;
+
+/**
+ * 청크 하나가 커밋될 때마다 전달되는 진행 상황
+ * <p>
+ * id 는 [minId, maxId] 범위를 앞에서부터 처리하므로 lastId 로 진행률을 계산한다.
+ */
+@Value
+public class BulkProgress {
+
+    int chunk;
+    long minId;
+    long lastId;
+    long maxId;
+    long affected;
+
+    public double getCompletion() {
+        if (maxId <= minId) {
+            return 1.0;
+        }
+        return (double) (lastId - minId + 1) / (maxId - minId + 1);
+    }
+}
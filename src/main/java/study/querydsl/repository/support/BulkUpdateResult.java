@@ -0,0 +1,19 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class BulkUpdateResult {
+
+    private final int chunks;
+    private final long affected;
+    private final long elapsedMillis;
+
+    public BulkUpdateResult(int chunks, long affected, long elapsedMillis) {
+        this.chunks = chunks;
+        this.affected = affected;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,93 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAUtil;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 한 번 직렬화한 JPQL 과 projection. 실행할 때는 파라미터만 바인딩한다.
+ */
+public class CompiledQuery<T> {
+
+    private final String jpql;
+    private final List<Object> constants;
+    private final FactoryExpression<T> projection;
+
+    @SuppressWarnings("unchecked")
+    CompiledQuery(String jpql, List<Object> constants, Expression<?> projection) {
+        this.jpql = jpql;
+        this.constants = constants;
+        this.projection = projection instanceof FactoryExpression ? (FactoryExpression<T>) projection : null;
+    }
+
+    public String getJpql() {
+        return jpql;
+    }
+
+    /**
+     * 정렬을 붙인 사본. 정렬은 요청마다 달라지므로 캐시 키에 넣지 않고 실행할 때마다 붙인다.
+     * 정렬 대상은 상수 없이 이 쿼리의 alias 를 쓰는 경로여야 한다.
+     */
+    public CompiledQuery<T> orderBy(EntityManager em, List<OrderSpecifier<?>> orders) {
+        if (orders.isEmpty()) {
+            return this;
+        }
+        StringBuilder ordered = new StringBuilder(jpql).append("\norder by ");
+        for (int i = 0; i < orders.size(); i++) {
+            OrderSpecifier<?> order = orders.get(i);
+            JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+            serializer.handle(order.getTarget());
+            if (i > 0) {
+                ordered.append(", ");
+            }
+            ordered.append(serializer).append(order.isAscending() ? " asc" : " desc");
+        }
+        return new CompiledQuery<>(ordered.toString(), constants, projection);
+    }
+
+    public List<T> fetch(EntityManager em, Map<ParamExpression<?>, Object> params) {
+        return fetch(em, params, 0, -1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<T> fetch(EntityManager em, Map<ParamExpression<?>, Object> params, long offset, long limit) {
+        Query query = em.createQuery(jpql);
+        JPAUtil.setConstants(query, constants, params);
+        if (offset > 0) {
+            query.setFirstResult((int) offset);
+        }
+        if (limit >= 0) {
+            query.setMaxResults((int) limit);
+        }
+
+        List<?> rows = query.getResultList();
+        if (projection == null) {
+            return (List<T>) rows;
+        }
+
+        List<T> results = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            if (row == null) {
+                results.add(null);
+            } else {
+                results.add(projection.newInstance(row instanceof Object[] ? (Object[]) row : new Object[]{row}));
+            }
+        }
+        return results;
+    }
+
+    public T fetchOne(EntityManager em, Map<ParamExpression<?>, Object> params) {
+        List<T> results = fetch(em, params, 0, 1);
+        return results.isEmpty() ? null : results.get(0);
+    }
+}
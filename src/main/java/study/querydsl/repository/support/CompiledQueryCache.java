@@ -0,0 +1,82 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 검색 조건의 모양(어떤 조건이 null 이 아닌지)별로 Querydsl 표현식 트리와 JPQL 직렬화를 한 번만 수행하도록 캐싱한다.
+ * <p>
+ * 조건 값은 {@link com.querydsl.core.types.dsl.Param} 으로 만들어 두고 실행 시점에만 바인딩한다.
+ * 정렬처럼 요청마다 달라지는 값은 키에 넣지 않고 {@link CompiledQuery#orderBy} 로 실행할 때 붙인다.
+ * 그래도 키가 예상보다 늘어나면 maximum-size 를 넘은 뒤로는 더 이상 캐싱하지 않고 매번 컴파일한다.
+ */
+@Component
+public class CompiledQueryCache implements MeterBinder {
+
+    private final ConcurrentMap<String, CompiledQuery<?>> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int maximumSize;
+
+    public CompiledQueryCache(@Value("${querydsl.compiled-query-cache.maximum-size:512}") int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CompiledQuery<T> get(String key, EntityManager em, Supplier<JPAQuery<T>> template) {
+        CompiledQuery<T> compiled = (CompiledQuery<T>) cache.get(key);
+        if (compiled != null) {
+            hits.increment();
+            return compiled;
+        }
+
+        misses.increment();
+        compiled = compile(em, template.get());
+        if (cache.size() < maximumSize) {
+            CompiledQuery<T> existing = (CompiledQuery<T>) cache.putIfAbsent(key, compiled);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return compiled;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    private <T> CompiledQuery<T> compile(EntityManager em, JPAQuery<T> query) {
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(query.getMetadata(), false, null);
+        return new CompiledQuery<>(serializer.toString(), serializer.getConstants(), query.getMetadata().getProjection());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("querydsl.compiled.query.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("querydsl.compiled.query.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("querydsl.compiled.query.cache.size", cache, ConcurrentMap::size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,138 @@
+package study.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * content 쿼리와 count 쿼리를 서로 다른 커넥션에서 동시에 실행해 페이지를 만든다.
+ * <p>
+ * count 쿼리는 전용 EntityManager 로 bounded executor 에서 실행되고 content 쿼리는 호출 스레드에서 실행된다.
+ * executor 가 포화 상태이거나, 호출자가 쓰기 트랜잭션 안에 있어 다른 커넥션에서는 아직 커밋되지 않은 변경을 볼 수 없는 경우에는
+ * 기존처럼 순차 실행한다. 순차 실행할 때는 count 도 호출자의 EntityManager(트랜잭션)로 실행한다.
+ */
+@Slf4j
+@Component
+public class ConcurrentPageExecutor {
+
+    public static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    private final EntityManager em;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ThreadPoolExecutor executor;
+    private final long countTimeoutMillis;
+
+    public ConcurrentPageExecutor(EntityManager em, EntityManagerFactory entityManagerFactory,
+                                  @Value("${querydsl.paging.count-pool-size:4}") int poolSize,
+                                  @Value("${querydsl.paging.count-queue-capacity:16}") int queueCapacity,
+                                  @Value("${querydsl.paging.count-timeout-millis:3000}") long countTimeoutMillis) {
+        this.em = em;
+        this.entityManagerFactory = entityManagerFactory;
+        this.countTimeoutMillis = countTimeoutMillis;
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "page-count-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public long getCountTimeoutMillis() {
+        return countTimeoutMillis;
+    }
+
+    /**
+     * @param content 호출 스레드(현재 트랜잭션)에서 실행할 content 쿼리
+     * @param count   EntityManager 를 받아 total 을 반환하는 count 쿼리. 동시 실행이면 전용 EntityManager,
+     *                순차 실행이면 호출자의 EntityManager 를 받는다.
+     */
+    public <T> Page<T> getPage(Pageable pageable, Supplier<List<T>> content, Function<EntityManager, Long> count) {
+        if (!canRunConcurrently()) {
+            return sequential(pageable, content, count);
+        }
+
+        Future<Long> total;
+        try {
+            total = executor.submit(() -> countInNewEntityManager(count));
+        } catch (RejectedExecutionException e) {
+            log.debug("count executor saturated, falling back to sequential paging");
+            return sequential(pageable, content, count);
+        }
+
+        try {
+            return PageableExecutionUtils.getPage(content.get(), pageable, () -> await(total));
+        } finally {
+            // content 만으로 total 을 알 수 있는 경우 count 결과는 필요 없다.
+            total.cancel(true);
+        }
+    }
+
+    private <T> Page<T> sequential(Pageable pageable, Supplier<List<T>> content, Function<EntityManager, Long> count) {
+        List<T> results = content.get();
+        return PageableExecutionUtils.getPage(results, pageable, () -> {
+            Long total = count.apply(em);
+            return total != null ? total : 0L;
+        });
+    }
+
+    private boolean canRunConcurrently() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private long countInNewEntityManager(Function<EntityManager, Long> count) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            Long total = count.apply(em);
+            return total != null ? total : 0L;
+        } finally {
+            em.close();
+        }
+    }
+
+    private long await(Future<Long> total) {
+        try {
+            return total.get(countTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("count query did not finish within " + countTimeoutMillis + "ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for count query", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
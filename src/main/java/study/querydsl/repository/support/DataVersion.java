@@ -0,0 +1,48 @@
+package study.querydsl.repository.support;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member/Team 테이블에 쓰기가 발생할 때마다 증가하는 버전
+ * <p>
+ * 쓰기 SQL 이 실행되는 시점에 한 번, 트랜잭션이 끝나는 시점(커밋/롤백)에 한 번 더 증가시킨다.
+ * 트랜잭션 도중 다른 스레드가 이전 데이터로 캐시를 다시 채우더라도 커밋 이후에는 반드시 무효화된다.
+ */
+@Component
+public class DataVersion {
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastChangedMillis;
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * 마지막으로 쓰기 SQL 이 실행되었거나 쓰기 트랜잭션이 끝난 시각
+     */
+    public long lastChangedMillis() {
+        return lastChangedMillis;
+    }
+
+    public void changed() {
+        version.incrementAndGet();
+        lastChangedMillis = System.currentTimeMillis();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DataVersion.this);
+                    version.incrementAndGet();
+                    lastChangedMillis = System.currentTimeMillis();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.repository.support;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * total 이 추정값일 수 있는 페이지. exact 가 false 면 totalElements/totalPages 는 통계 기반 추정치다.
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    private final boolean exact;
+
+    public EstimatedPage(List<T> content, Pageable pageable, long total, boolean exact) {
+        super(content, pageable, total);
+        this.exact = exact;
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * in (...) 파라미터 목록을 2의 거듭제곱 길이로 맞춘다.
+ * <p>
+ * id 개수만큼 placeholder 를 만드는 SQL 은 길이마다 다른 문장이 되어 prepared statement cache 를 그만큼 차지한다.
+ * 마지막 값을 반복해 채우면 결과는 같고 SQL 종류는 log2(최대 길이) 개로 줄어든다.
+ * HQL/Querydsl 의 in 파라미터는 hibernate.query.in_clause_parameter_padding 이 같은 일을 하므로, 이 클래스는 그 설정이
+ * 닿지 않는 multi-load 처럼 SQL 을 직접 만드는 경로에 쓴다.
+ */
+public final class InListPadding {
+
+    private InListPadding() {
+    }
+
+    public static <T> List<T> pad(List<T> values) {
+        int size = values.size();
+        if (size == 0) {
+            return values;
+        }
+        int padded = paddedSize(size);
+        if (padded == size) {
+            return values;
+        }
+        List<T> result = new ArrayList<>(padded);
+        result.addAll(values);
+        T last = values.get(size - 1);
+        while (result.size() < padded) {
+            result.add(last);
+        }
+        return result;
+    }
+
+    /**
+     * size 이상인 가장 작은 2의 거듭제곱
+     */
+    public static int paddedSize(int size) {
+        return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * chunkSize 이하인 가장 큰 2의 거듭제곱. 청크를 채워도 이 크기를 넘지 않게 청크 크기를 맞출 때 쓴다.
+     */
+    public static int chunkSize(int chunkSize) {
+        return Integer.highestOneBit(Math.max(chunkSize, 1));
+    }
+}
@@ -0,0 +1,12 @@
+package study.querydsl.repository.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException(String token) {
+        super("Invalid cursor: " + token);
+    }
+}
@@ -0,0 +1,12 @@
+package study.querydsl.repository.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSortException extends IllegalArgumentException {
+
+    public InvalidSortException(String property) {
+        super("Unsupported sort property: " + property);
+    }
+}
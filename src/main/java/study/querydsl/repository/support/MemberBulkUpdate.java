@@ -0,0 +1,99 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.LongType;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 청크 단위 벌크 update 에서 바꿀 컬럼
+ * <pre>
+ * MemberBulkUpdate.create().username("비회원").addAge(1)
+ * </pre>
+ */
+public class MemberBulkUpdate {
+
+    private String username;
+    private Integer age;
+    private Integer ageDelta;
+    private boolean teamChanged;
+    private Long teamId;
+
+    private MemberBulkUpdate() {
+    }
+
+    public static MemberBulkUpdate create() {
+        return new MemberBulkUpdate();
+    }
+
+    public MemberBulkUpdate username(String username) {
+        Assert.notNull(username, "username must not be null");
+        this.username = username;
+        return this;
+    }
+
+    public MemberBulkUpdate age(int age) {
+        Assert.isNull(ageDelta, "age and addAge cannot be combined");
+        this.age = age;
+        return this;
+    }
+
+    public MemberBulkUpdate addAge(int delta) {
+        Assert.isNull(age, "age and addAge cannot be combined");
+        this.ageDelta = delta;
+        return this;
+    }
+
+    /**
+     * @param teamId null 이면 팀을 뺀다.
+     */
+    public MemberBulkUpdate team(Long teamId) {
+        this.teamChanged = true;
+        this.teamId = teamId;
+        return this;
+    }
+
+    public boolean isTeamChanged() {
+        return teamChanged;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public String setClause() {
+        List<String> assignments = new ArrayList<>();
+        if (username != null) {
+            assignments.add("username = :username");
+        }
+        if (age != null) {
+            assignments.add("age = :age");
+        }
+        if (ageDelta != null) {
+            assignments.add("age = age + :ageDelta");
+        }
+        if (teamChanged) {
+            assignments.add("team_id = :teamId");
+        }
+        Assert.state(!assignments.isEmpty(), "nothing to update");
+        return String.join(", ", assignments);
+    }
+
+    public void bind(NativeQuery<?> query) {
+        if (username != null) {
+            query.setParameter("username", username);
+        }
+        if (age != null) {
+            query.setParameter("age", age);
+        }
+        if (ageDelta != null) {
+            query.setParameter("ageDelta", ageDelta);
+        }
+        if (teamChanged) {
+            //null 이어도 타입을 알 수 있도록 지정한다.
+            query.setParameter("teamId", teamId, LongType.INSTANCE);
+        }
+    }
+}
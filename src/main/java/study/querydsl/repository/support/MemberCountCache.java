@@ -0,0 +1,57 @@
+package study.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * 검색 조건별 total count 캐시
+ * <p>
+ * 값마다 계산 시점의 {@link DataVersion} 을 같이 저장하고, 조회 시 버전이 달라졌으면 버린다.
+ * Member/Team 에 대한 insert/delete/벌크 update 가 나가면 그 이전에 계산된 count 는 모두 무효가 된다.
+ */
+@Component
+public class MemberCountCache {
+
+    private final DataVersion dataVersion;
+    private final Cache<MemberSearchKey, CachedCount> cache;
+
+    public MemberCountCache(DataVersion dataVersion,
+                            @Value("${querydsl.count-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${querydsl.count-cache.ttl:PT1M}") Duration ttl) {
+        this.dataVersion = dataVersion;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public long get(MemberSearchCondition condition, LongSupplier countQuery) {
+        MemberSearchKey key = MemberSearchKey.of(condition);
+        long version = dataVersion.current();
+
+        CachedCount cached = cache.getIfPresent(key);
+        if (cached != null && cached.version == version) {
+            return cached.total;
+        }
+
+        long total = countQuery.getAsLong();
+        cache.put(key, new CachedCount(version, total));
+        return total;
+    }
+
+    private static class CachedCount {
+        private final long version;
+        private final long total;
+
+        private CachedCount(long version, long total) {
+            this.version = version;
+            this.total = total;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * (팀 이름, 나이) 버킷별 회원 수 통계로 검색 결과 건수를 추정한다.
+ * <p>
+ * 통계는 group by 한 번으로 만들고 refresh-interval 이 지났고 데이터가 바뀐 경우에만 전용 스레드에서 다시 만든다.
+ * 다시 만드는 동안에는 직전 통계로 추정하므로 요청 스레드는 group by 를 실행하지 않는다.
+ * 그 사이의 쓰기는 반영되지 않으므로 결과는 항상 추정치로 취급해야 한다.
+ * username 과 id 목록 조건은 버킷으로 표현할 수 없어 추정하지 않고, 통계를 처음 만들기 전에도 추정하지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberCountEstimator {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final DataVersion dataVersion;
+    private final long refreshIntervalNanos;
+    private final ExecutorService refresher;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    public MemberCountEstimator(EntityManagerFactory entityManagerFactory, DataVersion dataVersion,
+                                @Value("${querydsl.count-estimator.refresh-interval:PT30S}") Duration refreshInterval) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.dataVersion = dataVersion;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-count-estimator-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public OptionalLong estimate(MemberSearchCondition condition) {
+        if (StringUtils.hasText(condition.getUsername()) || condition.getMemberIds() != null) {
+            return OptionalLong.empty();
+        }
+
+        Snapshot current = currentSnapshot();
+        if (current == null) {
+            return OptionalLong.empty();
+        }
+        String teamName = StringUtils.hasText(condition.getTeamName()) ? condition.getTeamName() : null;
+        long total = 0;
+        for (Bucket bucket : current.buckets) {
+            if (bucket.matches(teamName, condition.getAgeGoe(), condition.getAgeLoe())) {
+                total += bucket.count;
+            }
+        }
+        return OptionalLong.of(total);
+    }
+
+    /**
+     * 호출한 스레드에서 바로 통계를 다시 만든다. 기동 시 warm-up 과 테스트에서 쓴다.
+     */
+    public synchronized void refresh() {
+        snapshot = load();
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null || current.isStale(dataVersion.current(), refreshIntervalNanos)) {
+            scheduleRefresh();
+        }
+        return current;
+    }
+
+    private void scheduleRefresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(this::refreshInBackground);
+        } catch (RejectedExecutionException e) {
+            //종료 중이다.
+            refreshing.set(false);
+        }
+    }
+
+    private void refreshInBackground() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("failed to refresh member count statistics", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private Snapshot load() {
+        long version = dataVersion.current();
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            List<Tuple> rows = new JPAQueryFactory(em)
+                    .select(team.name, member.age, member.count())
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .groupBy(team.name, member.age)
+                    .fetch();
+
+            List<Bucket> buckets = new ArrayList<>(rows.size());
+            for (Tuple row : rows) {
+                buckets.add(new Bucket(row.get(team.name), row.get(member.age), row.get(member.count())));
+            }
+            return new Snapshot(version, System.nanoTime(), buckets);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static class Snapshot {
+        private final long version;
+        private final long loadedAt;
+        private final List<Bucket> buckets;
+
+        private Snapshot(long version, long loadedAt, List<Bucket> buckets) {
+            this.version = version;
+            this.loadedAt = loadedAt;
+            this.buckets = buckets;
+        }
+
+        private boolean isStale(long currentVersion, long refreshIntervalNanos) {
+            return version != currentVersion && System.nanoTime() - loadedAt >= refreshIntervalNanos;
+        }
+    }
+
+    private static class Bucket {
+        private final String teamName;
+        private final int age;
+        private final long count;
+
+        private Bucket(String teamName, Integer age, Long count) {
+            this.teamName = teamName;
+            this.age = age;
+            this.count = count;
+        }
+
+        private boolean matches(String teamName, Integer ageGoe, Integer ageLoe) {
+            return (teamName == null || Objects.equals(this.teamName, teamName))
+                    && (ageGoe == null || age >= ageGoe)
+                    && (ageLoe == null || age <= ageLoe);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset(seek) 페이징에서 사용하는 continuation token
+ * <p>
+ * (정렬 키, member.id) 의 마지막 값을 담고 있으며 클라이언트에게는 base64 문자열로만 노출된다.
+ */
+@Getter
+public class MemberCursor {
+
+    private static final String VERSION = "v1";
+    private static final String DELIMITER = "|";
+
+    public enum Sort {
+        ID, AGE
+    }
+
+    private final Sort sort;
+    private final int lastAge;
+    private final long lastId;
+
+    private MemberCursor(Sort sort, int lastAge, long lastId) {
+        this.sort = sort;
+        this.lastAge = lastAge;
+        this.lastId = lastId;
+    }
+
+    public static MemberCursor after(Sort sort, MemberTeamDto last) {
+        return new MemberCursor(sort, last.getAge(), last.getMemberId());
+    }
+
+    public static MemberCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + DELIMITER);
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new InvalidCursorException(token);
+            }
+            return new MemberCursor(Sort.valueOf(parts[1]), Integer.parseInt(parts[2]), Long.parseLong(parts[3]));
+        } catch (IllegalArgumentException e) {
+            if (e instanceof InvalidCursorException) {
+                throw e;
+            }
+            throw new InvalidCursorException(token);
+        }
+    }
+
+    public String encode() {
+        String raw = VERSION + DELIMITER + sort.name() + DELIMITER + lastAge + DELIMITER + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
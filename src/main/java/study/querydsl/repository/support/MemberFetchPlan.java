@@ -0,0 +1,11 @@
+package study.querydsl.repository.support;
+
+/**
+ * 회원 엔티티를 조회할 때 함께 읽을 연관관계
+ */
+public enum MemberFetchPlan {
+    /** team 은 프록시로 두고 처음 접근할 때 batch fetch size 단위로 IN 조회한다. */
+    MEMBER_ONLY,
+    /** team 을 같은 쿼리에서 fetch join 한다. */
+    WITH_TEAM
+}
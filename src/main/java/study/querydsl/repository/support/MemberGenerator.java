@@ -0,0 +1,30 @@
+package study.querydsl.repository.support;
+
+import study.querydsl.entity.Member;
+
+/**
+ * {@link study.querydsl.repository.MemberBulkLoader} 가 적재할 팀/회원 데이터를 만든다.
+ * <p>
+ * create 는 team 없이 회원을 만들고, 소속 팀은 loader 가 teamOf 의 결과로 지정한다.
+ * 여러 스레드에서 동시에 호출될 수 있으므로 상태를 갖지 않아야 한다.
+ */
+@FunctionalInterface
+public interface MemberGenerator {
+
+    Member create(long index);
+
+    default int teamOf(long index, int teamCount) {
+        return (int) (index % teamCount);
+    }
+
+    default String teamName(int teamIndex) {
+        return teamIndex < 26 ? "team" + (char) ('A' + teamIndex) : "team" + teamIndex;
+    }
+
+    /**
+     * member0, member1 ... / 나이는 0~99 를 반복 / 팀은 teamA, teamB ... 에 번갈아 배정
+     */
+    static MemberGenerator sequential() {
+        return index -> new Member("member" + index, (int) (index % 100));
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.repository.support;
+
+import lombok.Value;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.UsernameMatch;
+
+import java.util.List;
+
+/**
+ * 캐시 키로 쓰기 위해 정규화한 {@link MemberSearchCondition}
+ * <p>
+ * 검색 조건에서 무시되는 값(빈 문자열, 공백)은 null 로 맞춰서 같은 쿼리가 같은 키를 갖도록 한다.
+ */
+@Value
+public class MemberSearchKey {
+
+    String username;
+    UsernameMatch usernameMatch;
+    String teamName;
+    Integer ageGoe;
+    Integer ageLoe;
+    List<Long> memberIds;
+
+    public static MemberSearchKey of(MemberSearchCondition condition) {
+        String username = normalize(condition.getUsername());
+        return new MemberSearchKey(
+                username,
+                username == null || condition.isExactUsername() ? null : condition.getUsernameMatch(),
+                normalize(condition.getTeamName()),
+                condition.getAgeGoe(),
+                condition.getAgeLoe(),
+                condition.getMemberIds() != null ? List.copyOf(condition.getMemberIds()) : null);
+    }
+
+    private static String normalize(String value) {
+        return StringUtils.hasText(value) ? value : null;
+    }
+}
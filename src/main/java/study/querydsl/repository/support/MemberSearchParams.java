@@ -0,0 +1,152 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.UsernameMatch;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * {@link CompiledQueryCache} 용 검색 조건 파라미터
+ * <p>
+ * shape 는 조건 중 어떤 것이 적용되는지를 비트로 표현한 값으로, 같은 shape 의 조건은 같은 JPQL 을 사용한다.
+ * username 은 EXACT 이면 =, PREFIX/CONTAINS 이면 like 로 비교한다.
+ */
+public final class MemberSearchParams {
+
+    public static final Param<String> USERNAME = new Param<>(String.class, "username");
+    public static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    public static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    public static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+    public static final Param<String> USERNAME_PATTERN = new Param<>(String.class, "usernamePattern");
+    @SuppressWarnings("rawtypes")
+    public static final Param<Collection> MEMBER_IDS = new Param<>(Collection.class, "memberIds");
+
+    private static final int USERNAME_BIT = 1;
+    private static final int TEAM_NAME_BIT = 1 << 1;
+    private static final int AGE_GOE_BIT = 1 << 2;
+    private static final int AGE_LOE_BIT = 1 << 3;
+    private static final int USERNAME_LIKE_BIT = 1 << 4;
+    private static final int MEMBER_IDS_BIT = 1 << 5;
+
+    private static final String USERNAME_LIKE_TEMPLATE = "{0} like {1} escape '" + UsernameMatch.LIKE_ESCAPE + "'";
+
+    private MemberSearchParams() {
+    }
+
+    public static int shape(MemberSearchCondition condition) {
+        int shape = 0;
+        if (StringUtils.hasText(condition.getUsername())) {
+            shape |= condition.isExactUsername() ? USERNAME_BIT : USERNAME_LIKE_BIT;
+        }
+        if (condition.getMemberIds() != null) {
+            shape |= MEMBER_IDS_BIT;
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME_BIT;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE_BIT;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE_BIT;
+        }
+        return shape;
+    }
+
+    public static Map<ParamExpression<?>, Object> bind(MemberSearchCondition condition) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>();
+        int shape = shape(condition);
+        if (hasUsername(shape)) {
+            params.put(USERNAME, condition.getUsername());
+        }
+        if ((shape & USERNAME_LIKE_BIT) != 0) {
+            params.put(USERNAME_PATTERN, condition.getUsernameMatch().likePattern(condition.getUsername()));
+        }
+        if ((shape & MEMBER_IDS_BIT) != 0) {
+            params.put(MEMBER_IDS, condition.getMemberIds());
+        }
+        if (hasTeamName(shape)) {
+            params.put(TEAM_NAME, condition.getTeamName());
+        }
+        if (hasAgeGoe(shape)) {
+            params.put(AGE_GOE, condition.getAgeGoe());
+        }
+        if (hasAgeLoe(shape)) {
+            params.put(AGE_LOE, condition.getAgeLoe());
+        }
+        return params;
+    }
+
+    public static boolean hasUsername(int shape) {
+        return (shape & USERNAME_BIT) != 0;
+    }
+
+    public static boolean hasTeamName(int shape) {
+        return (shape & TEAM_NAME_BIT) != 0;
+    }
+
+    public static boolean hasAgeGoe(int shape) {
+        return (shape & AGE_GOE_BIT) != 0;
+    }
+
+    public static boolean hasAgeLoe(int shape) {
+        return (shape & AGE_LOE_BIT) != 0;
+    }
+
+    /**
+     * username(=, like) 과 id 목록 조건
+     */
+    public static BooleanExpression usernameMatches(int shape) {
+        BooleanExpression predicate = hasUsername(shape) ? member.username.eq(USERNAME) : null;
+        if ((shape & USERNAME_LIKE_BIT) != 0) {
+            predicate = and(predicate, Expressions.booleanTemplate(USERNAME_LIKE_TEMPLATE, member.username, USERNAME_PATTERN));
+        }
+        if ((shape & MEMBER_IDS_BIT) != 0) {
+            predicate = and(predicate, Expressions.booleanTemplate("{0} in {1}", member.id, MEMBER_IDS));
+        }
+        return predicate;
+    }
+
+    /**
+     * {@link #usernameMatches(int)} 의 파라미터를 바인딩하지 않는 버전. 컴파일해 두지 않는 쿼리에서 쓴다.
+     */
+    public static BooleanExpression usernameMatches(MemberSearchCondition condition) {
+        BooleanExpression predicate = null;
+        if (StringUtils.hasText(condition.getUsername())) {
+            predicate = condition.isExactUsername()
+                    ? member.username.eq(condition.getUsername())
+                    : member.username.like(condition.getUsernameMatch().likePattern(condition.getUsername()),
+                    UsernameMatch.LIKE_ESCAPE);
+        }
+        if (condition.getMemberIds() != null) {
+            predicate = and(predicate, member.id.in(condition.getMemberIds()));
+        }
+        return predicate;
+    }
+
+    private static BooleanExpression and(BooleanExpression left, BooleanExpression right) {
+        return left != null ? left.and(right) : right;
+    }
+
+    public static BooleanExpression teamNameEq(int shape) {
+        return hasTeamName(shape) ? team.name.eq(TEAM_NAME) : null;
+    }
+
+    public static BooleanExpression ageGoe(int shape) {
+        return hasAgeGoe(shape) ? member.age.goe(AGE_GOE) : null;
+    }
+
+    public static BooleanExpression ageLoe(int shape) {
+        return hasAgeLoe(shape) ? member.age.loe(AGE_LOE) : null;
+    }
+}
@@ -0,0 +1,127 @@
+package study.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 검색 결과 캐시. 목록(member.search)과 페이지(member.page) 결과를 따로 보관한다.
+ * <p>
+ * 키에 조회 시점의 {@link DataVersion} 을 포함하므로 Member/Team 에 쓰기가 나가면 이전 결과는 더 이상 조회되지 않고
+ * 용량/TTL 에 따라 밀려난다. 용량은 행 수가 아니라 결과의 대략적인 바이트 크기로 제한한다.
+ * <p>
+ * 쓰기 트랜잭션 안에서의 조회는 flush 되지 않은 변경이 결과에 반영되어야 하므로 캐시를 거치지 않는다.
+ * 캐시된 결과는 여러 요청이 공유하므로 호출자는 수정하면 안 된다.
+ * <p>
+ * 적중률/eviction 은 cache.gets, cache.evictions, cache.hit.ratio (cache=member.search|member.page) 로 조회한다.
+ */
+@Component
+public class MemberSearchResultCache {
+
+    private static final int KEY_WEIGHT = 128;
+    private static final int ROW_WEIGHT = 96;
+
+    private final DataVersion dataVersion;
+    private final boolean enabled;
+    private final Cache<ResultKey, List<MemberTeamDto>> searchCache;
+    private final Cache<ResultKey, Page<MemberTeamDto>> pageCache;
+
+    public MemberSearchResultCache(DataVersion dataVersion, MeterRegistry meterRegistry,
+                                   @Value("${querydsl.result-cache.enabled:true}") boolean enabled,
+                                   @Value("${querydsl.result-cache.maximum-size:64MB}") DataSize maximumSize,
+                                   @Value("${querydsl.result-cache.ttl:PT5M}") Duration ttl) {
+        this.dataVersion = dataVersion;
+        this.enabled = enabled;
+        this.searchCache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes() / 2)
+                .<ResultKey, List<MemberTeamDto>>weigher((key, rows) -> weigh(rows))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.pageCache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes() / 2)
+                .<ResultKey, Page<MemberTeamDto>>weigher((key, page) -> weigh(page.getContent()))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        register(meterRegistry, searchCache, "member.search");
+        register(meterRegistry, pageCache, "member.page");
+    }
+
+    public List<MemberTeamDto> search(String method, MemberSearchCondition condition, Supplier<List<MemberTeamDto>> query) {
+        if (!cacheable()) {
+            return query.get();
+        }
+        ResultKey key = new ResultKey(method, dataVersion.current(), MemberSearchKey.of(condition), null);
+        List<MemberTeamDto> cached = searchCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        List<MemberTeamDto> results = Collections.unmodifiableList(query.get());
+        searchCache.put(key, results);
+        return results;
+    }
+
+    public Page<MemberTeamDto> page(String method, MemberSearchCondition condition, Pageable pageable,
+                                    Supplier<Page<MemberTeamDto>> query) {
+        if (!cacheable()) {
+            return query.get();
+        }
+        ResultKey key = new ResultKey(method, dataVersion.current(), MemberSearchKey.of(condition), pageable);
+        Page<MemberTeamDto> cached = pageCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        Page<MemberTeamDto> page = query.get();
+        pageCache.put(key, page);
+        return page;
+    }
+
+    private boolean cacheable() {
+        return enabled && (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    private static int weigh(List<MemberTeamDto> rows) {
+        long weight = KEY_WEIGHT;
+        for (MemberTeamDto row : rows) {
+            weight += ROW_WEIGHT + length(row.getUsername()) + length(row.getTeamName());
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static void register(MeterRegistry meterRegistry, Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("hit ratio since startup")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    @lombok.Value
+    private static class ResultKey {
+        String method;
+        long version;
+        MemberSearchKey condition;
+        Pageable pageable;
+    }
+}
@@ -7,6 +7,8 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import
         org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
@@ -15,6 +17,8 @@ import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
+import study.querydsl.monitoring.QueryMetrics;
+import study.querydsl.monitoring.RepositoryMetrics;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import java.util.List;
@@ -32,6 +36,11 @@ public abstract class QueryDsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private ConcurrentPageExecutor concurrentPageExecutor;
+    private CompiledQueryCache compiledQueryCache;
+    private QueryMetrics paginationMetrics;
+    private QueryMetrics concurrentPaginationMetrics;
+    private QueryMetrics slicingMetrics;
     public QueryDsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
         this.domainClass = domainClass;
@@ -48,11 +57,29 @@ public abstract class QueryDsl4RepositorySupport {
                 PathBuilder<>(path.getType(), path.getMetadata()));
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
+    @Autowired
+    public void setConcurrentPageExecutor(ConcurrentPageExecutor concurrentPageExecutor) {
+        this.concurrentPageExecutor = concurrentPageExecutor;
+    }
+    @Autowired
+    public void setCompiledQueryCache(CompiledQueryCache compiledQueryCache) {
+        this.compiledQueryCache = compiledQueryCache;
+    }
+    @Autowired
+    public void setRepositoryMetrics(RepositoryMetrics repositoryMetrics) {
+        String repository = getClass().getSimpleName();
+        this.paginationMetrics = repositoryMetrics.of(repository, "applyPagination");
+        this.concurrentPaginationMetrics = repositoryMetrics.of(repository, "applyConcurrentPagination");
+        this.slicingMetrics = repositoryMetrics.of(repository, "applySlicing");
+    }
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(concurrentPageExecutor, "ConcurrentPageExecutor must not be null!");
+        Assert.notNull(compiledQueryCache, "CompiledQueryCache must not be null!");
+        Assert.notNull(paginationMetrics, "RepositoryMetrics must not be null!");
     }
     protected JPAQueryFactory getQueryFactory() {
         return queryFactory;
@@ -63,6 +90,9 @@ public abstract class QueryDsl4RepositorySupport {
     protected EntityManager getEntityManager() {
         return entityManager;
     }
+    protected CompiledQueryCache getCompiledQueryCache() {
+        return compiledQueryCache;
+    }
     protected <T> JPAQuery<T> select(Expression<T> expr) {
         return getQueryFactory().select(expr);
     }
@@ -72,19 +102,60 @@ public abstract class QueryDsl4RepositorySupport {
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaQuery).fetch();
+        long start = System.nanoTime();
+        List<T> content = paginationMetrics.recordContent(start, getQuerydsl().applyPagination(pageable,
+                jpaQuery).fetch());
         return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+                () -> paginationMetrics.recordCount(System.nanoTime(), jpaQuery.fetchCount()));
     }
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
             JPAQuery> countQuery) {
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaContentQuery).fetch();
+        long start = System.nanoTime();
+        List<T> content = paginationMetrics.recordContent(start, getQuerydsl().applyPagination(pageable,
+                jpaContentQuery).fetch());
         JPAQuery countResult = countQuery.apply(getQueryFactory());
         return PageableExecutionUtils.getPage(content, pageable,
-                countResult::fetchCount);
+                () -> paginationMetrics.recordCount(System.nanoTime(), countResult.fetchCount()));
+    }
+    /**
+     * count 쿼리 없이 pageSize + 1 건을 읽어 다음 페이지 유무만 판단한다.
+     */
+    protected <T> Slice<T> applySlicing(Pageable pageable,
+                                        Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+        if (pageable.isUnpaged()) {
+            long start = System.nanoTime();
+            List<T> content = slicingMetrics.recordContent(start, getQuerydsl().applySorting(pageable.getSort(),
+                    jpaQuery).fetch());
+            return new SliceImpl<>(content, pageable, false);
+        }
+        getQuerydsl().applySorting(pageable.getSort(), jpaQuery)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1L);
+        long start = System.nanoTime();
+        List<T> content = slicingMetrics.recordContent(start, jpaQuery.fetch());
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+    /**
+     * count 쿼리를 별도 커넥션에서 content 쿼리와 동시에 실행한다.
+     * countQuery 는 동시 실행이면 전용 EntityManager, 순차 실행이면 호출자의 EntityManager 로 만든 JPAQueryFactory 를 받는다.
+     */
+    protected <T> Page<T> applyConcurrentPagination(Pageable pageable,
+                                                    Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
+            JPAQuery> countQuery) {
+        return concurrentPageExecutor.getPage(pageable,
+                () -> {
+                    JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
+                    long start = System.nanoTime();
+                    List<T> content = getQuerydsl().applyPagination(pageable,
+                            jpaContentQuery).fetch();
+                    return concurrentPaginationMetrics.recordContent(start, content);
+                },
+                em -> concurrentPaginationMetrics.recordCount(System.nanoTime(), countQuery.apply(new JPAQueryFactory(em))
+                        .setHint(ConcurrentPageExecutor.QUERY_TIMEOUT_HINT, concurrentPageExecutor.getCountTimeoutMillis())
+                        .fetchCount()));
     }
 }
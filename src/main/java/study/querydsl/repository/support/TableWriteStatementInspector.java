@@ -0,0 +1,49 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import study.querydsl.repository.event.MemberChangeEvents;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hibernate 가 실행하는 모든 SQL 을 검사해 감시 대상 테이블에 대한 insert/update/delete 가 나가면 {@link DataVersion} 을 올린다.
+ * <p>
+ * 엔티티 flush 뿐 아니라 queryFactory.update(member) 같은 벌크 연산도 결국 이 SQL 을 거치기 때문에 한 곳에서 모두 잡을 수 있다.
+ * member 쓰기 중 엔티티 이벤트 구간 밖에서 실행된 것은 벌크 연산으로 보고 {@link MemberChangeEvents} 에 알린다.
+ */
+public class TableWriteStatementInspector implements StatementInspector {
+
+    private static final Pattern LEADING_COMMENT = Pattern.compile("^\\s*(/\\*.*?\\*/\\s*)+", Pattern.DOTALL);
+    private static final Pattern WRITE = Pattern.compile("^(?:insert\\s+into|update|delete\\s+from)\\s+(\\w+)");
+
+    private final Set<String> tables;
+    private final DataVersion dataVersion;
+    private final MemberChangeEvents memberChangeEvents;
+
+    public TableWriteStatementInspector(Set<String> tables, DataVersion dataVersion, MemberChangeEvents memberChangeEvents) {
+        this.tables = tables;
+        this.dataVersion = dataVersion;
+        this.memberChangeEvents = memberChangeEvents;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        String table = writtenTable(sql);
+        if (table != null && tables.contains(table)) {
+            dataVersion.changed();
+        }
+        if ("member".equals(table) && !memberChangeEvents.isEntityWriteInProgress()) {
+            memberChangeEvents.bulkWritten();
+        }
+        return sql;
+    }
+
+    static String writtenTable(String sql) {
+        String statement = LEADING_COMMENT.matcher(sql).replaceFirst("").toLowerCase(Locale.ROOT);
+        Matcher matcher = WRITE.matcher(statement);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -0,0 +1,12 @@
+package study.querydsl.repository.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class TeamStatisticsNotReadyException extends IllegalStateException {
+
+    public TeamStatisticsNotReadyException() {
+        super("Team statistics are being built");
+    }
+}
@@ -0,0 +1,89 @@
+package study.querydsl.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 서로 다른 인메모리 H2 데이터베이스를 primary/replica 로 두고 커넥션 url 로 라우팅 결과를 확인한다.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final AtomicLong lastWrite = new AtomicLong();
+
+    @AfterEach
+    void cleanUp(){
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void readOnlyTransactionsRoundRobinAcrossReplicas() throws SQLException {
+        ReplicaRoutingDataSource routing = routing(List.of(h2("replica1"), h2("replica2")), 0);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            urls.add(url(routing));
+        }
+
+        assertThat(urls).containsExactly("jdbc:h2:mem:replica1", "jdbc:h2:mem:replica2",
+                "jdbc:h2:mem:replica1", "jdbc:h2:mem:replica2");
+    }
+
+    @Test
+    void writesGoToPrimary() throws SQLException {
+        ReplicaRoutingDataSource routing = routing(List.of(h2("replica1")), 0);
+
+        assertThat(url(routing)).isEqualTo("jdbc:h2:mem:primary");
+    }
+
+    @Test
+    void readsAfterRecentWriteGoToPrimary() throws SQLException {
+        ReplicaRoutingDataSource routing = routing(List.of(h2("replica1")), 60_000);
+        lastWrite.set(System.currentTimeMillis());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(url(routing)).isEqualTo("jdbc:h2:mem:primary");
+
+        lastWrite.set(System.currentTimeMillis() - 120_000);
+        assertThat(url(routing)).isEqualTo("jdbc:h2:mem:replica1");
+    }
+
+    @Test
+    void unavailableReplicaFallsBackToPrimary() throws SQLException {
+        JdbcDataSource broken = new JdbcDataSource();
+        broken.setURL("jdbc:h2:tcp://localhost:1/~/broken");
+        ReplicaRoutingDataSource routing = routing(List.of(broken), 0);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(url(routing)).isEqualTo("jdbc:h2:mem:primary");
+    }
+
+    private ReplicaRoutingDataSource routing(List<DataSource> replicas, long maxLagMillis) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(h2("primary"), replicas, lastWrite::get, maxLagMillis);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name);
+        return dataSource;
+    }
+
+    private static String url(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+}
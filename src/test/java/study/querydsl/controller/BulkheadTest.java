@@ -0,0 +1,99 @@
+package study.querydsl.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class BulkheadTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    CountDownLatch release = new CountDownLatch(1);
+    Bulkhead bulkhead;
+
+    @AfterEach
+    void cleanUp(){
+        release.countDown();
+        bulkhead.shutdown();
+    }
+
+    @Test
+    void completesWithTaskResult() throws Exception {
+        bulkhead = new Bulkhead("test", 1, 1, Duration.ofSeconds(5), transactionManager, meterRegistry);
+
+        assertThat(bulkhead.submit(() -> "done").get(1, TimeUnit.SECONDS)).isEqualTo("done");
+    }
+
+    @Test
+    void shedsLoadWhenPoolAndQueueAreFull(){
+        bulkhead = new Bulkhead("test", 1, 1, Duration.ofSeconds(5), transactionManager, meterRegistry);
+        bulkhead.submit(this::block);
+        bulkhead.submit(this::block);
+
+        assertThatThrownBy(() -> bulkhead.submit(() -> "rejected"))
+                .isInstanceOf(BulkheadFullException.class);
+        assertThat(meterRegistry.get("bulkhead.rejected").tag("name", "test").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void missedDeadlineCompletesExceptionallyAndInterruptsTask(){
+        bulkhead = new Bulkhead("test", 1, 0, Duration.ofMillis(100), transactionManager, meterRegistry);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<String> result = bulkhead.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        });
+
+        assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DeadlineExceededException.class);
+        assertThat(awaitQuietly(interrupted)).isTrue();
+        assertThat(meterRegistry.get("bulkhead.timeouts").tag("name", "test").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void runsTaskInReadOnlyTransactionThatTimesOutAtDeadline() throws Exception {
+        bulkhead = new Bulkhead("test", 1, 1, Duration.ofMillis(2500), transactionManager, meterRegistry);
+
+        assertThat(bulkhead.submit(() -> "done").get(1, TimeUnit.SECONDS)).isEqualTo("done");
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertThat(definition.getValue().isReadOnly()).isTrue();
+        //JDBC query timeout 은 초 단위이므로 남은 시간을 올림한다.
+        assertThat(definition.getValue().getTimeout()).isEqualTo(3);
+    }
+
+    private String block() {
+        awaitQuietly(release);
+        return "released";
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package study.querydsl.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * v3 bulkhead 를 스레드 하나, 대기 큐 하나로 줄여 두고 /v3/members/async 가 503 으로 부하를 떨어내는지 확인한다.
+ */
+@SpringBootTest(properties = {
+        "querydsl.bulkhead.members-v3.pool-size=1",
+        "querydsl.bulkhead.members-v3.queue-capacity=1",
+        "querydsl.bulkhead.members-v3.deadline=300ms"})
+@AutoConfigureMockMvc
+class MemberAsyncControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberSearchBulkheads bulkheads;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void cleanUp() throws InterruptedException {
+        release.countDown();
+        for (int i = 0; i < 50 && !idle(); i++) {
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    void fullBulkheadReturnsServiceUnavailable() throws Exception {
+        bulkheads.v3().submit(this::block);
+        bulkheads.v3().submit(this::block);
+
+        mockMvc.perform(get("/v3/members/async"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void missedDeadlineReturnsServiceUnavailable() throws Exception {
+        bulkheads.v3().submit(this::block);
+
+        MvcResult result = mockMvc.perform(get("/v3/members/async"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(2000);
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    /**
+     * 느린 JDBC 쿼리처럼 deadline 의 interrupt 를 무시하고 풀 스레드를 붙잡아 둔다.
+     */
+    private String block() {
+        while (true) {
+            try {
+                release.await();
+                return "released";
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    private boolean idle() {
+        return meterRegistry.get("bulkhead.active").tag("name", "members-v3").gauge().value() == 0
+                && meterRegistry.get("bulkhead.queued").tag("name", "members-v3").gauge().value() == 0;
+    }
+}
@@ -0,0 +1,81 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberTeamBinaryCodec;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberBinaryFormatTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @BeforeEach
+    void before(){
+        Team binaryTeam = new Team("binaryTeam");
+        em.persist(binaryTeam);
+        em.persist(new Member("binaryMember1", 10, binaryTeam));
+        em.persist(new Member("binaryMember2", 20, binaryTeam));
+        em.flush();
+    }
+
+    @Test
+    void listIsEncodedWhenRequested() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/members").param("teamName", "binaryTeam")
+                        .accept(MemberTeamBinaryCodec.CONTENT_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MemberTeamBinaryCodec.CONTENT_TYPE))
+                .andReturn();
+
+        List<MemberTeamDto> rows = MemberTeamBinaryCodec.readList(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertThat(rows).extracting("username").containsExactlyInAnyOrder("binaryMember1", "binaryMember2");
+        assertThat(rows).extracting("teamName").containsOnly("binaryTeam");
+    }
+
+    @Test
+    void pageIsEncodedWhenRequested() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v3/members").param("teamName", "binaryTeam")
+                        .param("size", "1")
+                        .accept(MemberTeamBinaryCodec.CONTENT_TYPE))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Page<MemberTeamDto> page = MemberTeamBinaryCodec.readPage(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void wildcardAcceptStaysJson() throws Exception {
+        mockMvc.perform(get("/v1/members").param("teamName", "binaryTeam").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+}
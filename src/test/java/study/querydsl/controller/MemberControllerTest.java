@@ -0,0 +1,42 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import study.querydsl.dto.MemberSearchCondition;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 요청 파라미터가 MemberSearchCondition 으로 바인딩되는 규칙
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void memberIdsAreBoundUpToLimit() throws Exception {
+        mockMvc.perform(get("/v2/members").param("memberIds", memberIds(MemberSearchCondition.MAX_MEMBER_IDS)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void tooManyMemberIdsAreRejected() throws Exception {
+        mockMvc.perform(get("/v2/members").param("memberIds", memberIds(MemberSearchCondition.MAX_MEMBER_IDS + 1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static String[] memberIds(int count) {
+        String[] memberIds = new String[count];
+        for (int i = 0; i < memberIds.length; i++) {
+            memberIds[i] = String.valueOf(i + 1);
+        }
+        return memberIds;
+    }
+}
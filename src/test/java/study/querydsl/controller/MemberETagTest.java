@@ -0,0 +1,87 @@
+package study.querydsl.controller;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberETagTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    Team etagTeam;
+
+    @BeforeEach
+    void before(){
+        etagTeam = new Team("etagTeam");
+        em.persist(etagTeam);
+        em.persist(new Member("etagMember1", 10, etagTeam));
+        em.flush();
+    }
+
+    @Test
+    void unchangedDataReturnsNotModifiedWithoutQuerying() throws Exception {
+        String etag = mockMvc.perform(get("/v2/members").param("teamName", "etagTeam"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/v2/members").param("teamName", "etagTeam").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void writeChangesETag() throws Exception {
+        String etag = mockMvc.perform(get("/v2/members").param("teamName", "etagTeam"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        em.persist(new Member("etagMember2", 20, etagTeam));
+        em.flush();
+
+        String changed = mockMvc.perform(get("/v2/members").param("teamName", "etagTeam").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotEqualTo(etag);
+    }
+
+    @Test
+    void etagDependsOnRepresentation() throws Exception {
+        String json = mockMvc.perform(get("/v1/members").param("teamName", "etagTeam"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/v1/members").param("teamName", "etagTeam")
+                        .accept("application/x-member-team-columns")
+                        .header(HttpHeaders.IF_NONE_MATCH, json))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,67 @@
+package study.querydsl.controller;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "querydsl.warm-up.enabled=true")
+class QueryWarmUpTest {
+
+    @Autowired
+    QueryWarmUp queryWarmUp;
+
+    @Autowired
+    ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void startupWarmUpPreparesEveryQueryShape(){
+        QueryWarmUp.WarmUpReport startup = queryWarmUp.getReport();
+        assertThat(startup).isNotNull();
+        assertThat(startup.getFailures()).isZero();
+        assertThat(startup.getCompiledQueryCacheMisses()).isPositive();
+        assertThat(applicationAvailability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+
+        //한 번 더 실행하면 모든 쿼리가 이미 준비되어 있어야 한다.
+        QueryWarmUp.WarmUpReport again = queryWarmUp.warmUp();
+        assertThat(again.getFailures()).isZero();
+        assertThat(again.getCompiledQueryCacheMisses()).isZero();
+        assertThat(again.getPlanCacheMisses()).isZero();
+        assertThat(again.getPlanCacheHits()).isPositive();
+    }
+
+    @Test
+    void everyPaddedMemberIdsLengthIsWarmedUp(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("__warm_up_test__");
+        condition.setMemberIds(LongStream.rangeClosed(1, 37).boxed().collect(Collectors.toList()));
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long misses = statistics.getQueryPlanCacheMissCount();
+
+        //쓰기 트랜잭션 안에서는 인덱스를 거치지 않고 in 목록(64 개로 채워진다)을 그대로 쿼리한다.
+        transactionTemplate.executeWithoutResult(status -> memberRepository.search(condition));
+
+        assertThat(statistics.getQueryPlanCacheMissCount()).isEqualTo(misses);
+    }
+}
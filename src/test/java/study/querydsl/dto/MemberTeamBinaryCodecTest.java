@@ -0,0 +1,72 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberTeamBinaryCodecTest {
+
+    @Test
+    void listRoundTrip() throws IOException {
+        List<MemberTeamDto> rows = List.of(
+                new MemberTeamDto(100L, "member1", 10, 1L, "teamA"),
+                new MemberTeamDto(101L, "회원2", 20, 2L, "teamB"),
+                new MemberTeamDto(99L, null, -1, null, null),
+                new MemberTeamDto(5_000_000_000L, "", 0, 1L, "teamA"),
+                new MemberTeamDto(7L, "member5", 40, 3L, null));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberTeamBinaryCodec.writeList(rows, out);
+
+        List<MemberTeamDto> decoded = MemberTeamBinaryCodec.readList(new ByteArrayInputStream(out.toByteArray()));
+        assertThat(decoded).isEqualTo(rows);
+    }
+
+    @Test
+    void pageRoundTrip() throws IOException {
+        Page<MemberTeamDto> page = new PageImpl<>(List.of(new MemberTeamDto(1L, "member1", 10, 1L, "teamA")),
+                PageRequest.of(3, 1), 42);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberTeamBinaryCodec.writePage(page, out);
+
+        Page<MemberTeamDto> decoded = MemberTeamBinaryCodec.readPage(new ByteArrayInputStream(out.toByteArray()));
+        assertThat(decoded.getContent()).isEqualTo(page.getContent());
+        assertThat(decoded.getNumber()).isEqualTo(3);
+        assertThat(decoded.getSize()).isEqualTo(1);
+        assertThat(decoded.getTotalElements()).isEqualTo(42);
+        //페이지도 목록으로 읽을 수 있다.
+        assertThat(MemberTeamBinaryCodec.readList(new ByteArrayInputStream(out.toByteArray()))).hasSize(1);
+    }
+
+    @Test
+    void muchSmallerThanJson() throws IOException {
+        List<MemberTeamDto> rows = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            rows.add(new MemberTeamDto(1_000L + i, "member" + i, i % 100, (long) i % 2, "team" + i % 2));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberTeamBinaryCodec.writeList(rows, out);
+        byte[] json = new ObjectMapper().writeValueAsBytes(rows);
+
+        assertThat(out.size()).isLessThan(json.length / 4);
+    }
+
+    @Test
+    void rejectsForeignPayload(){
+        assertThatThrownBy(() -> MemberTeamBinaryCodec.readList(new ByteArrayInputStream("[]".getBytes())))
+                .isInstanceOf(IOException.class);
+    }
+}
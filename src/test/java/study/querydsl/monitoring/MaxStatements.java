@@ -0,0 +1,19 @@
+package study.querydsl.monitoring;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 메서드 본문에서 실행되는 SQL 이 value 개를 넘으면 실패시킨다. (@BeforeEach/@AfterEach 는 세지 않는다)
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(MaxStatementsExtension.class)
+public @interface MaxStatements {
+
+    int value();
+}
@@ -0,0 +1,30 @@
+package study.querydsl.monitoring;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+public class MaxStatementsExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(MaxStatementsExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        QueryCountGuard guard = SpringExtension.getApplicationContext(context).getBean(QueryCountGuard.class);
+        context.getStore(NAMESPACE).put(context.getUniqueId(), guard.begin(context.getDisplayName()));
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        QueryScope scope = context.getStore(NAMESPACE).remove(context.getUniqueId(), QueryScope.class);
+        if (scope == null) {
+            return;
+        }
+        scope.close();
+        MaxStatements maxStatements = context.getRequiredTestMethod().getAnnotation(MaxStatements.class);
+        if (maxStatements != null && context.getExecutionException().isEmpty()) {
+            scope.assertAtMost(maxStatements.value());
+        }
+    }
+}
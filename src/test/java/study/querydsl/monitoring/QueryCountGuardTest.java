@@ -0,0 +1,98 @@
+package study.querydsl.monitoring;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class QueryCountGuardTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    QueryCountGuard guard;
+
+    JPAQueryFactory queryFactory;
+
+    List<Long> memberIds = new ArrayList<>();
+
+    @BeforeEach
+    void before(){
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("guardTeamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            Member guardMember = new Member("guardMember" + i, 10 + i, teamA);
+            em.persist(guardMember);
+            memberIds.add(guardMember.getId());
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void repeatedStatementIsReportedWithCallSite(){
+        QueryScope scope = guard.begin("repeatedLookup");
+        try (scope) {
+            for (Long memberId : memberIds) {
+                queryFactory.selectFrom(member).where(member.id.eq(memberId)).fetchOne();
+            }
+        }
+
+        assertThat(scope.getStatementCount()).isEqualTo(5);
+        Map<String, Integer> repeated = scope.getRepeatedStatements();
+        assertThat(repeated).hasSize(1);
+        assertThat(repeated.values()).containsExactly(5);
+
+        assertThatThrownBy(() -> scope.assertAtMost(1))
+                .isInstanceOf(TooManyStatementsException.class)
+                .hasMessageContaining("5 x ")
+                .hasMessageContaining(QueryCountGuardTest.class.getName());
+    }
+
+    @Test
+    @MaxStatements(1)
+    void fetchJoinStaysWithinLimit(){
+        List<Member> members = queryFactory
+                .selectFrom(member)
+                .join(member.team, team).fetchJoin()
+                .where(team.name.eq("guardTeamA"))
+                .fetch();
+
+        for (Member findMember : members) {
+            assertThat(findMember.getTeam().getName()).isEqualTo("guardTeamA");
+        }
+    }
+
+    @Test
+    void statementsOutsideScopeAreNotCounted(){
+        queryFactory.selectFrom(member).fetch();
+
+        try (QueryScope scope = guard.begin("empty")) {
+            assertThat(scope.getStatementCount()).isZero();
+        }
+    }
+
+    @Test
+    void fingerprintIgnoresLiteralsAndInListLength(){
+        assertThat(QueryCountGuard.fingerprint("/* comment */ select * from member where member_id in (?, ?, ?) and username='a'"))
+                .isEqualTo(QueryCountGuard.fingerprint("select *\n from member where member_id in (?) and username='b'"));
+    }
+}
@@ -0,0 +1,96 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.BulkLoadResult;
+import study.querydsl.repository.support.MemberGenerator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * loader 가 청크마다 커밋하므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest(properties = "querydsl.bulk.commit-interval=1000")
+class MemberBulkLoaderTest {
+
+    private static final MemberGenerator GENERATOR = new MemberGenerator() {
+        @Override
+        public Member create(long index) {
+            return new Member("bulkMember" + index, (int) (index % 100));
+        }
+
+        @Override
+        public String teamName(int teamIndex) {
+            return "bulkTeam" + teamIndex;
+        }
+    };
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("bulkMember")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("bulkTeam")).execute();
+        });
+    }
+
+    @Test
+    void loadBatchesInserts(){
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        BulkLoadResult result = memberBulkLoader.load(3, 500, GENERATOR, 1);
+
+        assertThat(result.getTeamIds()).hasSize(3);
+        assertThat(countMembers()).isEqualTo(500);
+        //batch 가 아니면 행마다 insert 문을 준비하므로 500 을 넘는다. flush 당 한 번 + sequence 조회 정도만 허용한다.
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(50);
+        assertThat(statistics.getSecondLevelCachePutCount()).isZero();
+    }
+
+    @Test
+    void loadInParallel(){
+        memberBulkLoader.load(2, 2_500, GENERATOR, 4);
+
+        assertThat(countMembers()).isEqualTo(2_500);
+        Long distinctIds = transactionTemplate.execute(status -> new JPAQueryFactory(em)
+                .select(member.id.countDistinct())
+                .from(member)
+                .where(member.username.startsWith("bulkMember"))
+                .fetchOne());
+        assertThat(distinctIds).isEqualTo(2_500);
+    }
+
+    private long countMembers() {
+        return transactionTemplate.execute(status -> new JPAQueryFactory(em)
+                .select(member.count())
+                .from(member)
+                .join(member.team, team)
+                .where(member.username.startsWith("bulkMember"), team.name.startsWith("bulkTeam"))
+                .fetchOne());
+    }
+}
@@ -0,0 +1,164 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkProgress;
+import study.querydsl.repository.support.BulkUpdateResult;
+import study.querydsl.repository.support.MemberBulkUpdate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 청크마다 커밋하므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest(properties = {"querydsl.bulk.chunk-size=10", "querydsl.bulk.chunk-pause=0ms"})
+class MemberBulkUpdateTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    List<Long> memberIds = new ArrayList<>();
+    Long teamId;
+
+    @BeforeEach
+    void init(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team chunkTeam = new Team("chunkTeam");
+            em.persist(chunkTeam);
+            teamId = chunkTeam.getId();
+            for (int i = 0; i < 30; i++) {
+                Member chunkMember = new Member("chunkMember" + i, i, chunkTeam);
+                em.persist(chunkMember);
+                memberIds.add(chunkMember.getId());
+            }
+        });
+    }
+
+    @AfterEach
+    void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("chunkMember")
+                    .or(member.username.eq("비회원"))).execute();
+            queryFactory.delete(team).where(team.name.eq("chunkTeam")).execute();
+        });
+    }
+
+    @Test
+    void updateRunsInChunksAndReportsProgress(){
+        List<BulkProgress> progress = new ArrayList<>();
+
+        BulkUpdateResult result = memberRepository.bulkUpdate(condition(10),
+                MemberBulkUpdate.create().username("비회원").addAge(100), progress::add);
+
+        assertThat(result.getAffected()).isEqualTo(20);
+        assertThat(result.getChunks()).isGreaterThanOrEqualTo(2);
+        assertThat(progress).hasSize(result.getChunks());
+        assertThat(progress).extracting(BulkProgress::getAffected).isSorted();
+        assertThat(progress.get(progress.size() - 1).getCompletion()).isEqualTo(1.0);
+
+        List<Integer> ages = transactionTemplate.execute(status -> new JPAQueryFactory(em)
+                .select(member.age)
+                .from(member)
+                .where(member.team.id.eq(teamId), member.username.eq("비회원"))
+                .fetch());
+        assertThat(ages).hasSize(20).allMatch(age -> age >= 110);
+    }
+
+    @Test
+    void sparseIdsDoNotAddChunks(){
+        MemberSearchCondition middle = condition(1);
+        middle.setAgeLoe(28);
+        memberRepository.bulkDelete(middle, progress -> { });
+
+        //남은 두 회원의 id 는 chunk-size 보다 멀리 떨어져 있다.
+        BulkUpdateResult result = memberRepository.bulkUpdate(condition(0), MemberBulkUpdate.create().addAge(1), progress -> { });
+
+        assertThat(result.getAffected()).isEqualTo(2);
+        assertThat(result.getChunks()).isEqualTo(1);
+    }
+
+    @Test
+    void onlyAffectedMembersAreEvictedFromSecondLevelCache(){
+        Long untouchedId = memberIds.get(0);
+        Long updatedId = memberIds.get(20);
+        transactionTemplate.executeWithoutResult(status -> {
+            em.find(Member.class, untouchedId);
+            em.find(Member.class, updatedId);
+        });
+        assertThat(emf.getCache().contains(Member.class, untouchedId)).isTrue();
+        assertThat(emf.getCache().contains(Member.class, updatedId)).isTrue();
+
+        memberRepository.bulkUpdate(condition(10), MemberBulkUpdate.create().addAge(1), progress -> { });
+
+        assertThat(emf.getCache().contains(Member.class, untouchedId)).isTrue();
+        assertThat(emf.getCache().contains(Member.class, updatedId)).isFalse();
+    }
+
+    @Test
+    void affectedMembersAreDetachedFromCallerPersistenceContext(){
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.executeWithoutResult(status -> {
+            Member untouched = em.find(Member.class, memberIds.get(0));
+            Member updated = em.find(Member.class, memberIds.get(20));
+
+            memberRepository.bulkUpdate(condition(10), MemberBulkUpdate.create().age(99), progress -> { });
+
+            assertThat(em.contains(untouched)).isTrue();
+            assertThat(em.contains(updated)).isFalse();
+            assertThat(em.find(Member.class, memberIds.get(20)).getAge()).isEqualTo(99);
+        });
+    }
+
+    @Test
+    void deleteEvictsTeamMembersCollection(){
+        String role = Team.class.getName() + ".members";
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamId).getMembers().size());
+        org.hibernate.Cache cache = emf.getCache().unwrap(org.hibernate.Cache.class);
+        assertThat(cache.containsCollection(role, teamId)).isTrue();
+
+        BulkUpdateResult result = memberRepository.bulkDelete(condition(10), progress -> { });
+
+        assertThat(result.getAffected()).isEqualTo(20);
+        assertThat(cache.containsCollection(role, teamId)).isFalse();
+        Integer remaining = transactionTemplate.execute(status -> em.find(Team.class, teamId).getMembers().size());
+        assertThat(remaining).isEqualTo(10);
+    }
+
+    private static MemberSearchCondition condition(int ageGoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("chunkTeam");
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+}
@@ -0,0 +1,250 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitoring.QueryCountGuard;
+import study.querydsl.monitoring.QueryScope;
+import study.querydsl.repository.event.MemberSnapshot;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberUsernameIndex, MemberBitmapIndex 검색 테스트
+ * <p>
+ * 인덱스는 커밋 이후에 반영되므로 테스트 트랜잭션 없이 커밋하고 직접 정리한다.
+ */
+@SpringBootTest(properties = "querydsl.result-cache.enabled=false")
+class MemberIndexTest {
+
+    @Autowired
+    MemberUsernameIndex usernameIndex;
+
+    @Autowired
+    MemberBitmapIndex bitmapIndex;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    QueryCountGuard queryCountGuard;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Map<String, Long> ids = new HashMap<>();
+
+    @BeforeEach
+    void init(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("idxTeamA");
+            Team teamB = new Team("idxTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            persist("idxAlice", 20, teamA);
+            persist("idxAlina", 25, teamA);
+            persist("idxBob", 30, teamB);
+            persist("idx_Carol", 35, teamB);
+        });
+        usernameIndex.rebuild();
+        bitmapIndex.rebuild();
+    }
+
+    @AfterEach
+    void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("idx")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("idxTeam")).execute();
+        });
+    }
+
+    @Test
+    void usernameResolvesToIdsWithoutQuery(){
+        try (QueryScope scope = queryCountGuard.begin("resolve")) {
+            MemberSearchCondition prefix = usernameIndex.resolve(condition("idxAli", UsernameMatch.PREFIX));
+            MemberSearchCondition contains = usernameIndex.resolve(condition("lina", UsernameMatch.CONTAINS));
+            MemberSearchCondition wildcard = usernameIndex.resolve(condition("x_C", UsernameMatch.CONTAINS));
+            MemberSearchCondition shortText = usernameIndex.resolve(condition("_C", UsernameMatch.CONTAINS));
+
+            assertThat(scope.getStatementCount()).isZero();
+            assertThat(prefix.getUsername()).isNull();
+            assertThat(prefix.getMemberIds()).containsExactlyInAnyOrder(ids.get("idxAlice"), ids.get("idxAlina"));
+            assertThat(contains.getMemberIds()).containsExactly(ids.get("idxAlina"));
+            assertThat(wildcard.getMemberIds()).containsExactly(ids.get("idx_Carol"));
+            assertThat(shortText.getMemberIds()).containsExactly(ids.get("idx_Carol"));
+        }
+    }
+
+    @Test
+    void bitmapCountsTeamAgeAndIdCombinations(){
+        assertThat(count("idxTeamA", null, null)).hasValue(2);
+        assertThat(count("idxTeamB", 31, null)).hasValue(1);
+        assertThat(count("idxTeamB", 40, 30)).hasValue(0);
+        assertThat(count("idxTeamC", null, null)).hasValue(0);
+
+        MemberSearchCondition memberIds = condition("idxAli", UsernameMatch.PREFIX);
+        memberIds.setAgeGoe(21);
+        assertThat(bitmapIndex.count(usernameIndex.resolve(memberIds))).hasValue(1);
+        assertThat(bitmapIndex.count(memberIds)).isEmpty();
+    }
+
+    @Test
+    void pageTotalComesFromIndexAndEmptyResultSkipsQuery(){
+        bitmapIndex.count(conditionOf("idxTeamB", null, null));
+
+        try (QueryScope scope = queryCountGuard.begin("page")) {
+            Page<MemberTeamDto> page = memberRepository.searchPageSimple(conditionOf("idxTeamB", null, null), PageRequest.of(0, 1));
+            assertThat(page.getTotalElements()).isEqualTo(2);
+            assertThat(page.getContent()).hasSize(1);
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+        try (QueryScope scope = queryCountGuard.begin("empty")) {
+            assertThat(memberRepository.search(conditionOf("idxTeamA", 50, null))).isEmpty();
+            assertThat(scope.getStatementCount()).isZero();
+        }
+    }
+
+    @Test
+    void searchSliceRunsOnlyContentQuery(){
+        MemberSearchCondition condition = condition("idx", UsernameMatch.PREFIX);
+        condition.setTeamName("idxTeamB");
+
+        //정렬을 주지 않으면 id 순서다.
+        try (QueryScope scope = queryCountGuard.begin("slice")) {
+            Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 1));
+            assertThat(first.getContent()).extracting(MemberTeamDto::getUsername).containsExactly("idxBob");
+            assertThat(first.hasNext()).isTrue();
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 1));
+        assertThat(last.getContent()).extracting(MemberTeamDto::getUsername).containsExactly("idx_Carol");
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void entityChangesAreApplied(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Member alice = em.find(Member.class, ids.get("idxAlice"));
+            alice.setUsername("idxZoe");
+            alice.setTeam(em.find(Member.class, ids.get("idxBob")).getTeam());
+            em.remove(em.find(Member.class, ids.get("idxAlina")));
+            em.persist(new Member("idxAlfred", 40, null));
+        });
+
+        assertThat(search("idxAl", UsernameMatch.PREFIX)).extracting(MemberTeamDto::getUsername)
+                .containsExactly("idxAlfred");
+        assertThat(search("xZo", UsernameMatch.CONTAINS)).extracting(MemberTeamDto::getUsername)
+                .containsExactly("idxZoe");
+        assertThat(count("idxTeamA", null, null)).hasValue(0);
+        assertThat(count("idxTeamB", null, 20)).hasValue(1);
+    }
+
+    @Test
+    void staleIndexFallsBackToSqlAndRebuildsInBackground() throws InterruptedException {
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.username.startsWith("idx"))
+                .execute());
+
+        try (QueryScope scope = queryCountGuard.begin("stale")) {
+            MemberSearchCondition prefix = condition("idxAli", UsernameMatch.PREFIX);
+            assertThat(usernameIndex.resolve(prefix)).isSameAs(prefix);
+            assertThat(count("idxTeamA", null, null)).isEmpty();
+            //테이블 전체를 다시 읽는 일은 요청 스레드에서 일어나지 않는다.
+            assertThat(scope.getStatementCount()).isZero();
+        }
+        assertThat(memberRepository.search(conditionOf("idxTeamA", 26, null))).extracting(MemberTeamDto::getUsername)
+                .containsExactly("idxAlina");
+
+        for (int i = 0; i < 50 && count("idxTeamA", null, null).isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(count("idxTeamA", 26, null)).hasValue(1);
+    }
+
+    @Test
+    void changesCommittedDuringRebuildAreReplayed(){
+        Long bobId = ids.get("idxBob");
+        Long teamAId = teamRepository.findByName("idxTeamA").get(0).getId();
+        Long teamBId = teamRepository.findByName("idxTeamB").get(0).getId();
+        MemberBitmapIndex index = new MemberBitmapIndex(entityManagerFactory, teamRepository) {
+            @Override
+            protected Bitmaps load(EntityManager em) {
+                Bitmaps loaded = super.load(em);
+                //원본을 읽은 뒤에 커밋된 변경
+                updated(new MemberSnapshot(bobId, "idxBob", 30, teamBId), new MemberSnapshot(bobId, "idxBob", 30, teamAId));
+                return loaded;
+            }
+        };
+        try {
+            index.rebuild();
+
+            assertThat(index.count(conditionOf("idxTeamA", null, null))).hasValue(3);
+            assertThat(index.count(conditionOf("idxTeamB", null, null))).hasValue(1);
+        } finally {
+            index.shutdown();
+        }
+    }
+
+    private void persist(String username, int age, Team team) {
+        Member saved = new Member(username, age, team);
+        em.persist(saved);
+        ids.put(username, saved.getId());
+    }
+
+    private List<MemberTeamDto> search(String username, UsernameMatch match) {
+        return memberRepository.search(condition(username, match));
+    }
+
+    private OptionalLong count(String teamName, Integer ageGoe, Integer ageLoe) {
+        return bitmapIndex.count(conditionOf(teamName, ageGoe, ageLoe));
+    }
+
+    private static MemberSearchCondition condition(String username, UsernameMatch match) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setUsernameMatch(match);
+        return condition;
+    }
+
+    private static MemberSearchCondition conditionOf(String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
@@ -9,6 +9,7 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CompiledQueryCache;
 
 import javax.persistence.EntityManager;
 
@@ -27,6 +28,9 @@ class MemberJpaRepositoryTest {
     @Autowired
     MemberJpaRepository memberJpaRepository;
 
+    @Autowired
+    CompiledQueryCache compiledQueryCache;
+
     @Test
     void basicTest(){
         Member member = new Member("member1", 10);
@@ -113,4 +117,33 @@ class MemberJpaRepositoryTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void searchReusesCompiledQueryForSameConditionShape(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition first = new MemberSearchCondition();
+        first.setTeamName("teamA");
+        first.setAgeGoe(15);
+        assertThat(memberJpaRepository.search(first)).extracting("username").containsExactly("member2");
+
+        long hits = compiledQueryCache.hitCount();
+
+        MemberSearchCondition second = new MemberSearchCondition();
+        second.setTeamName("teamB");
+        second.setAgeGoe(35);
+        List<MemberTeamDto> result = memberJpaRepository.search(second);
+
+        assertThat(result).extracting("username").containsExactly("member4");
+        assertThat(result).extracting("teamName").containsExactly("teamB");
+        assertThat(compiledQueryCache.hitCount()).isEqualTo(hits + 1);
+    }
+
+}
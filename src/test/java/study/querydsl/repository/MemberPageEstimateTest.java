@@ -0,0 +1,163 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitoring.QueryCountGuard;
+import study.querydsl.monitoring.QueryScope;
+import study.querydsl.repository.support.DataVersion;
+import study.querydsl.repository.support.EstimatedPage;
+import study.querydsl.repository.support.MemberCountEstimator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * searchPageEstimated 의 total 이 통계 추정치, count 쿼리, 마지막 페이지 계산 중 어디서 오는지 확인한다.
+ * <p>
+ * 통계는 커밋된 데이터로 만들므로 테스트 트랜잭션 없이 커밋하고 직접 정리한다.
+ * 검색은 비트맵 인덱스가 total 을 대신하지 않도록 쓰기 트랜잭션 안에서 실행한다.
+ */
+@SpringBootTest
+class MemberPageEstimateTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberCountEstimator countEstimator;
+
+    @Autowired
+    QueryCountGuard queryCountGuard;
+
+    @Autowired
+    DataVersion dataVersion;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void init(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("estTeamA");
+            em.persist(teamA);
+            for (int i = 1; i <= 5; i++) {
+                em.persist(new Member("estMember" + i, 10 + i, teamA));
+            }
+        });
+        countEstimator.refresh();
+        //통계를 만든 뒤에 커밋된 회원은 refresh-interval 이 지나기 전까지 추정치에 들어가지 않는다.
+        persistMember("estMember6", 16);
+    }
+
+    @AfterEach
+    void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("estMember")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("estTeam")).execute();
+        });
+    }
+
+    @Test
+    void totalIsEstimatedFromStatistics(){
+        try (QueryScope scope = queryCountGuard.begin("estimated")) {
+            EstimatedPage<MemberTeamDto> page = searchPage(PageRequest.of(0, 2), false);
+
+            assertThat(page.getContent()).hasSize(2);
+            assertThat(page.isExact()).isFalse();
+            assertThat(page.getTotalElements()).isEqualTo(5);
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void exactTotalRunsCountQuery(){
+        EstimatedPage<MemberTeamDto> page = searchPage(PageRequest.of(0, 2), true);
+
+        assertThat(page.isExact()).isTrue();
+        assertThat(page.getTotalElements()).isEqualTo(6);
+    }
+
+    @Test
+    void lastPageTotalIsExactWithoutCountQuery(){
+        try (QueryScope scope = queryCountGuard.begin("last")) {
+            EstimatedPage<MemberTeamDto> page = searchPage(PageRequest.of(1, 4), false);
+
+            assertThat(page.getContent()).hasSize(2);
+            assertThat(page.isExact()).isTrue();
+            assertThat(page.getTotalElements()).isEqualTo(6);
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void staleStatisticsAreRefreshedInBackground() throws InterruptedException {
+        MemberCountEstimator estimator = new MemberCountEstimator(entityManagerFactory, dataVersion, Duration.ZERO);
+        try {
+            MemberSearchCondition condition = teamA();
+            //처음 만들기 전에는 추정하지 않는다.
+            assertThat(estimator.estimate(condition)).isEmpty();
+            OptionalLong first = await(estimator, condition, 6);
+            assertThat(first).hasValue(6);
+
+            persistMember("estMember7", 17);
+            try (QueryScope scope = queryCountGuard.begin("stale")) {
+                //다시 만드는 동안에는 직전 통계로 답한다.
+                assertThat(estimator.estimate(condition)).hasValue(6);
+                assertThat(scope.getStatementCount()).isZero();
+            }
+            assertThat(await(estimator, condition, 7)).hasValue(7);
+        } finally {
+            estimator.shutdown();
+        }
+    }
+
+    private EstimatedPage<MemberTeamDto> searchPage(PageRequest pageRequest, boolean exact) {
+        return transactionTemplate.execute(status -> memberRepository.searchPageEstimated(teamA(), pageRequest, exact));
+    }
+
+    private void persistMember(String username, int age) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new JPAQueryFactory(em).selectFrom(team).where(team.name.eq("estTeamA")).fetchOne();
+            em.persist(new Member(username, age, teamA));
+        });
+    }
+
+    private static OptionalLong await(MemberCountEstimator estimator, MemberSearchCondition condition, long expected)
+            throws InterruptedException {
+        OptionalLong estimate = estimator.estimate(condition);
+        for (int i = 0; i < 50 && (estimate.isEmpty() || estimate.getAsLong() != expected); i++) {
+            Thread.sleep(100);
+            estimate = estimator.estimate(condition);
+        }
+        return estimate;
+    }
+
+    private static MemberSearchCondition teamA() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("estTeamA");
+        return condition;
+    }
+}
@@ -0,0 +1,205 @@
+package study.querydsl.repository;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.MemberCursor;
+import study.querydsl.repository.support.MemberGenerator;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberRepositoryImpl 의 모든 검색 쿼리를 선택도가 있는 조건으로 실행하고, 실제로 실행된 SQL 을 H2 EXPLAIN 으로 확인한다.
+ * <p>
+ * 조건이 하나도 없는 검색은 전체를 읽는 것이 정상이므로 대상이 아니다.
+ * 메모리 인덱스가 count 를 대신하면 count 쿼리가 실행되지 않으므로, SQL 경로와 인덱스 경로를 나눠 확인한다.
+ */
+@SpringBootTest
+class MemberQueryPlanTest {
+
+    private static final int TEAMS = 20;
+    private static final int MEMBERS = 5_000;
+    private static final Pattern FROM_MEMBER = Pattern.compile("\\bfrom\\s+member\\b", Pattern.CASE_INSENSITIVE);
+
+    @TestConfiguration
+    static class SqlCaptureConfig {
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+    }
+
+    static class SqlCapture extends JdbcEventListener {
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+        private volatile boolean enabled;
+
+        @Override
+        public void onAfterExecuteQuery(PreparedStatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            //인덱스를 다시 만드는 전체 조회는 검색 쿼리가 아니다.
+            if (enabled && e == null && !Thread.currentThread().getName().endsWith("-rebuild")) {
+                statements.add(statementInformation.getSqlWithValues());
+            }
+        }
+    }
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Autowired
+    MemberBitmapIndex memberBitmapIndex;
+
+    @Autowired
+    SqlCapture sqlCapture;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void init(){
+        memberBulkLoader.load(TEAMS, MEMBERS, new MemberGenerator() {
+            @Override
+            public Member create(long index) {
+                return new Member("planMember" + index, (int) (index % 100));
+            }
+
+            @Override
+            public String teamName(int teamIndex) {
+                return "planTeam" + teamIndex;
+            }
+        });
+        jdbcTemplate.execute("analyze");
+    }
+
+    @AfterEach
+    void cleanUp(){
+        sqlCapture.enabled = false;
+        sqlCapture.statements.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("planMember")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("planTeam")).execute();
+        });
+    }
+
+    @Test
+    void everySearchQueryUsesAnIndex(){
+        //쓰기 트랜잭션 안에서는 메모리 인덱스를 쓰지 않으므로 count 쿼리까지 모두 SQL 로 실행된다.
+        sqlCapture.enabled = true;
+        transactionTemplate.executeWithoutResult(status -> searchAll());
+        sqlCapture.enabled = false;
+
+        Set<String> queries = capturedMemberQueries();
+        assertThat(queries).anyMatch(sql -> sql.toLowerCase().contains("count("));
+        assertThat(tableScans(queries)).isEmpty();
+    }
+
+    @Test
+    void searchesAnsweredByBitmapIndexUseAnIndex(){
+        //bulk load 로 stale 이 된 비트맵 인덱스를 미리 만들어 둬야 인덱스를 쓰는 경로가 실행된다.
+        memberBitmapIndex.rebuild();
+        sqlCapture.enabled = true;
+        searchAll();
+        sqlCapture.enabled = false;
+
+        Set<String> queries = capturedMemberQueries();
+        assertThat(queries).isNotEmpty();
+        assertThat(tableScans(queries)).isEmpty();
+    }
+
+    private void searchAll() {
+        for (MemberSearchCondition condition : selectiveConditions()) {
+            PageRequest pageRequest = PageRequest.of(0, 10);
+            memberRepository.search(condition);
+            memberRepository.searchStream(condition, dto -> { });
+            memberRepository.searchPageSimple(condition, pageRequest);
+            memberRepository.searchPageComplex(condition, pageRequest);
+            memberRepository.searchPageEstimated(condition, pageRequest, true);
+            memberRepository.searchPageConcurrent(condition, pageRequest);
+            for (MemberCursor.Sort sort : MemberCursor.Sort.values()) {
+                MemberCursorPage first = memberRepository.searchByCursor(condition, sort, null, 5);
+                if (first.isHasNext()) {
+                    memberRepository.searchByCursor(condition, sort, first.getNextCursor(), 5);
+                }
+            }
+        }
+    }
+
+    private Set<String> capturedMemberQueries() {
+        Set<String> queries = new LinkedHashSet<>();
+        for (String sql : sqlCapture.statements) {
+            if (FROM_MEMBER.matcher(sql).find()) {
+                queries.add(sql);
+            }
+        }
+        return queries;
+    }
+
+    private List<String> tableScans(Set<String> queries) {
+        List<String> tableScans = new ArrayList<>();
+        for (String sql : queries) {
+            String plan = String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class));
+            if (plan.contains(".tableScan")) {
+                tableScans.add(plan);
+            }
+        }
+        return tableScans;
+    }
+
+    private List<MemberSearchCondition> selectiveConditions() {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+
+        MemberSearchCondition username = new MemberSearchCondition();
+        username.setUsername("planMember42");
+        conditions.add(username);
+
+        MemberSearchCondition teamName = new MemberSearchCondition();
+        teamName.setTeamName("planTeam3");
+        conditions.add(teamName);
+
+        MemberSearchCondition age = new MemberSearchCondition();
+        age.setAgeGoe(20);
+        age.setAgeLoe(22);
+        conditions.add(age);
+
+        MemberSearchCondition teamAndAge = new MemberSearchCondition();
+        teamAndAge.setTeamName("planTeam3");
+        teamAndAge.setAgeGoe(20);
+        teamAndAge.setAgeLoe(40);
+        conditions.add(teamAndAge);
+
+        return conditions;
+    }
+}
@@ -1,21 +1,38 @@
 package study.querydsl.repository;
 
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.monitoring.QueryCountGuard;
+import study.querydsl.monitoring.QueryScope;
+import study.querydsl.repository.support.InvalidSortException;
+import study.querydsl.repository.support.MemberCursor;
+import study.querydsl.repository.support.MemberFetchPlan;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional
@@ -27,6 +44,18 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    QueryCountGuard queryCountGuard;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
     @Test
     void basicTest(){
         Member member = new Member("member1", 10);
@@ -71,6 +100,263 @@ class MemberRepositoryTest {
 
     }
 
+    @Test
+    void searchPageSimpleRecordsQueryMetrics(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+
+        Timer content = meterRegistry.get("repository.query")
+                .tags("repository", "MemberRepository", "method", "searchPageSimple", "phase", "content").timer();
+        Timer count = meterRegistry.get("repository.query")
+                .tags("repository", "MemberRepository", "method", "searchPageSimple", "phase", "count").timer();
+        DistributionSummary rows = meterRegistry.get("repository.query.rows")
+                .tags("repository", "MemberRepository", "method", "searchPageSimple").summary();
+        long contentBefore = content.count();
+        long countBefore = count.count();
+        double rowsBefore = rows.totalAmount();
+
+        memberRepository.searchPageSimple(new MemberSearchCondition(), PageRequest.of(0, 10));
+
+        assertThat(content.count()).isEqualTo(contentBefore + 1);
+        assertThat(count.count()).isEqualTo(countBefore + 1);
+        assertThat(rows.totalAmount() - rowsBefore).isEqualTo(2);
+    }
+
+    @Test
+    void findAllByIdInOrderUsesPersistenceContextThenOneInQuery(){
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Member lookupMember = new Member("lookupMember" + i, i);
+            em.persist(lookupMember);
+            ids.add(lookupMember.getId());
+        }
+        em.flush();
+        em.clear();
+        Member managed = em.find(Member.class, ids.get(2));
+
+        List<Long> request = List.of(ids.get(4), ids.get(2), -1L, ids.get(0), ids.get(4), ids.get(1));
+        try (QueryScope scope = queryCountGuard.begin("lookup")) {
+            List<Member> members = memberRepository.findAllByIdInOrder(request);
+            assertThat(members).extracting("username").containsExactly(
+                    "lookupMember4", "lookupMember2", "lookupMember0", "lookupMember4", "lookupMember1");
+            assertThat(members.get(1)).isSameAs(managed);
+            assertThat(members.get(0)).isSameAs(members.get(3));
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void findAllByIdInOrderReadsCachedMembersWithoutQuery(){
+        //2차 캐시는 커밋된 데이터에만 적용되므로 테스트 트랜잭션 없이 커밋하고 직접 정리한다.
+        List<Long> ids = transactionTemplate.execute(status -> {
+            Member cacheMember1 = new Member("cacheLookupMember1", 10);
+            Member cacheMember2 = new Member("cacheLookupMember2", 20);
+            em.persist(cacheMember1);
+            em.persist(cacheMember2);
+            return List.of(cacheMember2.getId(), cacheMember1.getId());
+        });
+        try {
+            assertThat(ids).allMatch(id -> emf.getCache().contains(Member.class, id));
+
+            transactionTemplate.executeWithoutResult(status -> {
+                try (QueryScope scope = queryCountGuard.begin("cachedLookup")) {
+                    assertThat(memberRepository.findAllByIdInOrder(ids)).extracting(Member::getUsername)
+                            .containsExactly("cacheLookupMember2", "cacheLookupMember1");
+                    assertThat(scope.getStatementCount()).isZero();
+                }
+            });
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+                    .delete(QMember.member)
+                    .where(QMember.member.username.startsWith("cacheLookupMember"))
+                    .execute());
+        }
+    }
+
+    @Test
+    void searchMembersLoadsTeamsInBatches(){
+        for (int i = 0; i < 5; i++) {
+            Team batchTeam = new Team("batchTeam" + i);
+            em.persist(batchTeam);
+            em.persist(new Member("batchMember" + i, 10 + i, batchTeam));
+            em.persist(new Member("batchMember" + (i + 5), 20 + i, batchTeam));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(24);
+
+        try (QueryScope scope = queryCountGuard.begin("memberOnly")) {
+            List<Member> members = memberRepository.searchMembers(condition, MemberFetchPlan.MEMBER_ONLY);
+            assertThat(members).hasSize(10);
+            members.forEach(findMember -> findMember.getTeam().getName());
+            //member 조회 1 + team IN 조회 1
+            assertThat(scope.getStatementCount()).isEqualTo(2);
+        }
+        em.clear();
+
+        try (QueryScope scope = queryCountGuard.begin("withTeam")) {
+            List<Member> members = memberRepository.searchMembers(condition, MemberFetchPlan.WITH_TEAM);
+            members.forEach(findMember -> findMember.getTeam().getName());
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+        em.clear();
+
+        try (QueryScope scope = queryCountGuard.begin("entityGraph")) {
+            List<Member> members = memberRepository.findWithTeamByAgeBetween(10, 24);
+            members.forEach(findMember -> findMember.getTeam().getName());
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+        em.clear();
+
+        try (QueryScope scope = queryCountGuard.begin("teamMembers")) {
+            List<Team> findTeams = em.createQuery("select t from Team t where t.name like 'batchTeam%'", Team.class)
+                    .getResultList();
+            findTeams.forEach(findTeam -> findTeam.getMembers().size());
+            //team 조회 1 + members IN 조회 1
+            assertThat(scope.getStatementCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void searchStream(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(5);
+        List<MemberTeamDto> exported = new ArrayList<>();
+        long count = memberRepository.searchStream(condition, exported::add);
+
+        assertThat(count).isEqualTo(5);
+        assertThat(exported).extracting("teamName").containsOnly("teamA");
+    }
+
+    @Test
+    void searchStreamKeepsCallerEntitiesManaged(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member first = new Member("member0", 0, teamA);
+        em.persist(first);
+        //fetch size(500) 를 넘겨 여러 번 스크롤하게 한다.
+        for (int i = 1; i < 600; i++) {
+            em.persist(new Member("member" + i, i % 100, teamA));
+        }
+
+        long count = memberRepository.searchStream(new MemberSearchCondition(), dto -> { });
+
+        assertThat(count).isEqualTo(600);
+        assertThat(em.contains(first)).isTrue();
+        assertThat(em.contains(teamA)).isTrue();
+    }
+
+    @Test
+    void searchPageComplexCountCacheInvalidatedOnInsert(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        PageRequest pageRequest = PageRequest.of(0, 1);
+
+        assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(2);
+
+        em.persist(new Member("member3", 30, teamA));
+        em.flush();
+
+        assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void searchPageConcurrent(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        //쓰기 트랜잭션 안에서는 커밋되지 않은 데이터를 보기 위해 순차 실행으로 대체된다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        Page<MemberTeamDto> results = memberRepository.searchPageConcurrent(condition, PageRequest.of(0, 3));
+
+        assertThat(results.getTotalElements()).isEqualTo(4);
+        assertThat(results.getContent()).extracting("username")
+                .containsExactly("member1","member2","member3");
+    }
+
+    @Test
+    void searchSliceAppliesSortAndEndsWithId(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 20, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 10, teamA));
+        em.persist(new Member("member4", 30, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age")));
+        Slice<MemberTeamDto> second = memberRepository.searchSlice(condition, PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "age")));
+
+        //나이가 같으면 id 순서다.
+        assertThat(first.getContent()).extracting("username").containsExactly("member4", "member1");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting("username").containsExactly("member2", "member3");
+        assertThat(second.hasNext()).isFalse();
+
+        assertThat(memberRepository.searchSlice(condition, PageRequest.of(0, 4)).getContent()).extracting("username")
+                .containsExactly("member1", "member2", "member3", "member4");
+        assertThatThrownBy(() -> memberRepository.searchSlice(condition, PageRequest.of(0, 2, Sort.by("password"))))
+                .isInstanceOf(InvalidSortException.class);
+    }
+
+    @Test
+    void searchByCursor(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 40, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 20, teamB);
+        Member member4 = new Member("member4", 10, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        MemberCursorPage first = memberRepository.searchByCursor(condition, MemberCursor.Sort.AGE, null, 3);
+
+        assertThat(first.getContent()).extracting("username")
+                .containsExactly("member4","member2","member3");
+        assertThat(first.isHasNext()).isTrue();
+
+        MemberCursorPage second = memberRepository.searchByCursor(condition, MemberCursor.Sort.AGE, first.getNextCursor(), 3);
+
+        assertThat(second.getContent()).extracting("username").containsExactly("member1");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
     @Test
     void queryDslProdicateExcutorTest(){
 
@@ -0,0 +1,138 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 결과 캐시는 읽기 전용 트랜잭션에서만 쓰이므로 테스트 트랜잭션 없이 데이터를 커밋하고 직접 정리한다.
+ */
+@SpringBootTest
+class MemberSearchResultCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    Statistics statistics;
+
+    MemberSearchCondition condition;
+
+    @BeforeEach
+    void init(){
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        condition = new MemberSearchCondition();
+        condition.setTeamName("resultCacheTeam");
+        transactionTemplate.executeWithoutResult(status -> {
+            Team resultCacheTeam = new Team("resultCacheTeam");
+            em.persist(resultCacheTeam);
+            em.persist(new Member("resultCacheMember1", 10, resultCacheTeam));
+            em.persist(new Member("resultCacheMember2", 20, resultCacheTeam));
+        });
+    }
+
+    @AfterEach
+    void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("resultCacheMember")).execute();
+            queryFactory.delete(team).where(team.name.eq("resultCacheTeam")).execute();
+        });
+    }
+
+    @Test
+    void repeatedSearchIsServedFromCache(){
+        double hitsBefore = hits("member.search");
+
+        List<MemberTeamDto> first = memberJpaRepository.search(condition);
+        statistics.clear();
+        List<MemberTeamDto> second = memberJpaRepository.search(condition);
+
+        assertThat(second).isSameAs(first).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(hits("member.search") - hitsBefore).isEqualTo(1);
+    }
+
+    @Test
+    void entityWriteInvalidatesCachedSearch(){
+        assertThat(memberJpaRepository.search(condition)).hasSize(2);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Team resultCacheTeam = new JPAQueryFactory(em).selectFrom(team)
+                    .where(team.name.eq("resultCacheTeam")).fetchOne();
+            em.persist(new Member("resultCacheMember3", 30, resultCacheTeam));
+        });
+
+        assertThat(memberJpaRepository.search(condition)).extracting("username")
+                .containsExactlyInAnyOrder("resultCacheMember1", "resultCacheMember2", "resultCacheMember3");
+    }
+
+    @Test
+    void bulkUpdateInvalidatesCachedPage(){
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        assertThat(memberRepository.searchPageComplex(condition, pageRequest).getContent())
+                .extracting("age").containsExactlyInAnyOrder(10, 20);
+
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.username.startsWith("resultCacheMember"))
+                .execute());
+
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, pageRequest);
+        assertThat(page.getContent()).extracting("age").containsExactlyInAnyOrder(11, 21);
+    }
+
+    @Test
+    void writeTransactionBypassesCache(){
+        memberJpaRepository.search(condition);
+
+        List<MemberTeamDto> results = transactionTemplate.execute(status -> {
+            Team resultCacheTeam = new JPAQueryFactory(em).selectFrom(team)
+                    .where(team.name.eq("resultCacheTeam")).fetchOne();
+            em.persist(new Member("resultCacheMember3", 30, resultCacheTeam));
+            return memberJpaRepository.search(condition);
+        });
+
+        assertThat(results).hasSize(3);
+    }
+
+    private double hits(String cache) {
+        return meterRegistry.get("cache.gets").tags("cache", cache, "result", "hit").functionCounter().count();
+    }
+}
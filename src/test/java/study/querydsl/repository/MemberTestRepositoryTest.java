@@ -0,0 +1,77 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CompiledQueryCache;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberTestRepositoryTest {
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @Autowired
+    CompiledQueryCache compiledQueryCache;
+
+    @Autowired
+    EntityManager em;
+
+    @BeforeEach
+    void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 30, teamA));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 40, teamB));
+    }
+
+    @Test
+    void applySlicing(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        Slice<Member> first = memberTestRepository.applySlicing(condition, PageRequest.of(0, 2, Sort.by("age")));
+        Slice<Member> last = memberTestRepository.applySlicing(condition, PageRequest.of(1, 2, Sort.by("age")));
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member2", "member3");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).extracting("username").containsExactly("member1");
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void searchPageByApplyPageSortsWithoutCachingEachSort(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        Page<Member> byAge = memberTestRepository.searchPageByApplyPage(condition, PageRequest.of(0, 2, Sort.by("age")));
+        long misses = compiledQueryCache.missCount();
+        Page<Member> byAgeDesc = memberTestRepository.searchPageByApplyPage(condition, PageRequest.of(0, 2, Sort.by("age").descending()));
+        Page<Member> byUsername = memberTestRepository.searchPageByApplyPage(condition, PageRequest.of(1, 2, Sort.by("username")));
+
+        assertThat(byAge.getContent()).extracting("username").containsExactly("member2", "member3");
+        assertThat(byAgeDesc.getContent()).extracting("username").containsExactly("member1", "member3");
+        assertThat(byUsername.getContent()).extracting("username").containsExactly("member3");
+        assertThat(byUsername.getTotalElements()).isEqualTo(3);
+        //정렬이 달라도 같은 조건 모양이면 컴파일된 쿼리를 다시 쓴다.
+        assertThat(compiledQueryCache.missCount()).isEqualTo(misses);
+    }
+}
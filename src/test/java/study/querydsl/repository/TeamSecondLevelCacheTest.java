@@ -0,0 +1,85 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 2차 캐시는 커밋된 데이터에만 적용되므로 테스트 트랜잭션 없이 데이터를 커밋하고 직접 정리한다.
+ * 검색 결과 캐시가 켜져 있으면 두 번째 요청이 DB 까지 가지 않으므로 끄고 확인한다.
+ */
+@SpringBootTest(properties = "querydsl.result-cache.enabled=false")
+@AutoConfigureMockMvc
+class TeamSecondLevelCacheTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void init(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team cacheTeam = new Team("cacheTeam");
+            em.persist(cacheTeam);
+            em.persist(new Member("cacheMember1", 10, cacheTeam));
+            em.persist(new Member("cacheMember2", 20, cacheTeam));
+        });
+    }
+
+    @AfterEach
+    void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("cacheMember")).execute();
+            queryFactory.delete(team).where(team.name.eq("cacheTeam")).execute();
+        });
+    }
+
+    @Test
+    void repeatedTeamNameSearchDoesNotSelectTeam() throws Exception {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        mockMvc.perform(get("/v1/members").param("teamName", "cacheTeam"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        statistics.clear();
+
+        mockMvc.perform(get("/v1/members").param("teamName", "cacheTeam"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].teamName").value("cacheTeam"));
+
+        assertThat(statistics.getEntityStatistics(Team.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        //member 조회 한 번만 실행된다.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,152 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitoring.QueryCountGuard;
+import study.querydsl.monitoring.QueryScope;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 통계는 커밋 이후에 반영되므로 테스트 트랜잭션 없이 커밋하고 직접 정리한다.
+ */
+@SpringBootTest
+class TeamStatisticsStoreTest {
+
+    @Autowired
+    TeamStatisticsStore teamStatisticsStore;
+
+    @Autowired
+    QueryCountGuard queryCountGuard;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void init(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("statTeamA");
+            Team teamB = new Team("statTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("statMember1", 10, teamA));
+            em.persist(new Member("statMember2", 20, teamA));
+            em.persist(new Member("statMember3", 30, teamB));
+            em.persist(new Member("statMember4", 40, teamB));
+        });
+        teamStatisticsStore.rebuild();
+    }
+
+    @AfterEach
+    void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("statMember")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("statTeam")).execute();
+        });
+    }
+
+    @Test
+    void entityChangesAreAppliedIncrementally(){
+        assertThat(statTeams()).containsExactlyElementsOf(expected());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member1 = findMember("statMember1");
+            member1.setAge(50);
+            em.remove(findMember("statMember4"));
+            Team teamB = new JPAQueryFactory(em).selectFrom(team).where(team.name.eq("statTeamB")).fetchOne();
+            em.persist(new Member("statMember5", 5, teamB));
+        });
+
+        List<TeamStatisticsDto> statistics = statTeams();
+        assertThat(statistics).containsExactlyElementsOf(expected());
+        assertThat(statistics.get(0).getAgeMin()).isEqualTo(20);
+        assertThat(statistics.get(0).getAgeMax()).isEqualTo(50);
+        assertThat(statistics.get(1).getMemberCount()).isEqualTo(2);
+        assertThat(statistics.get(1).getAgeMin()).isEqualTo(5);
+    }
+
+    @Test
+    void bulkUpdateIsReconciled(){
+        statTeams();
+
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.username.startsWith("statMember"))
+                .execute());
+        assertThat(teamStatisticsStore.isStale()).isTrue();
+        try (QueryScope scope = queryCountGuard.begin("stale")) {
+            //다시 만드는 동안에도 요청 스레드는 group by 를 실행하지 않고 직전 통계를 돌려준다.
+            assertThat(statTeams()).hasSize(2);
+            assertThat(scope.getStatementCount()).isZero();
+        }
+
+        teamStatisticsStore.rebuild();
+
+        assertThat(teamStatisticsStore.isStale()).isFalse();
+        List<TeamStatisticsDto> statistics = statTeams();
+        assertThat(statistics).containsExactlyElementsOf(expected());
+        assertThat(statistics.get(0).getAgeSum()).isEqualTo(32);
+    }
+
+    @Test
+    void rolledBackChangesAreNotApplied(){
+        statTeams();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            findMember("statMember1").setAge(99);
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(statTeams()).containsExactlyElementsOf(expected());
+    }
+
+    private Member findMember(String username) {
+        return new JPAQueryFactory(em).selectFrom(member).where(member.username.eq(username)).fetchOne();
+    }
+
+    private List<TeamStatisticsDto> statTeams() {
+        return teamStatisticsStore.statistics().stream()
+                .filter(dto -> dto.getTeamName() != null && dto.getTeamName().startsWith("statTeam"))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * QueryDslBasicTest.groupBy 와 같은 방식으로 DB 에서 직접 계산한 값
+     */
+    private List<TeamStatisticsDto> expected() {
+        List<Tuple> rows = transactionTemplate.execute(status -> new JPAQueryFactory(em)
+                .select(team.id, team.name, member.count(), member.age.sum(), member.age.min(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .where(team.name.startsWith("statTeam"))
+                .groupBy(team.id, team.name)
+                .orderBy(team.id.asc())
+                .fetch());
+        return rows.stream()
+                .map(row -> new TeamStatisticsDto(row.get(team.id), row.get(team.name), row.get(member.count()),
+                        //sum 은 Long 으로 돌아온다.
+                        ((Number) row.toArray()[3]).longValue(), row.get(member.age.min()), row.get(member.age.max())))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,27 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InListPaddingTest {
+
+    @Test
+    void padsToNextPowerOfTwoWithLastValue(){
+        assertThat(InListPadding.pad(List.of())).isEmpty();
+        assertThat(InListPadding.pad(List.of(1L))).containsExactly(1L);
+        assertThat(InListPadding.pad(List.of(1L, 2L, 3L))).containsExactly(1L, 2L, 3L, 3L);
+        assertThat(InListPadding.pad(List.of(1L, 2L, 3L, 4L))).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(InListPadding.paddedSize(5)).isEqualTo(8);
+        assertThat(InListPadding.paddedSize(512)).isEqualTo(512);
+    }
+
+    @Test
+    void chunkSizeIsRoundedDownToPowerOfTwo(){
+        assertThat(InListPadding.chunkSize(1000)).isEqualTo(512);
+        assertThat(InListPadding.chunkSize(512)).isEqualTo(512);
+        assertThat(InListPadding.chunkSize(0)).isEqualTo(1);
+    }
+}